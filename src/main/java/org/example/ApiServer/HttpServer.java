@@ -2,18 +2,27 @@ package org.example.ApiServer;
 
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Promise;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.handler.BodyHandler;
 import io.vertx.ext.web.handler.JWTAuthHandler;
+import io.vertx.sqlclient.Pool;
 import io.vertx.sqlclient.SqlClient;
 import org.example.Main;
 import org.example.constants.Constants;
+import org.example.db.EntityCache;
+import org.example.routes.BatchRoutes;
+import org.example.routes.ChangeRoutes;
 import org.example.routes.CredentialRoutes;
 import org.example.routes.DiscoveryRoutes;
+import org.example.routes.LiveMetricsRoutes;
+import org.example.routes.MetricsRoutes;
 import org.example.routes.ProvisionRoutes;
 import org.example.routes.UserRoutes;
 import org.example.utils.ApiResponse;
 import org.example.utils.Jwt;
+import org.example.utils.ListResponseCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;;
 
@@ -23,17 +32,37 @@ public class HttpServer extends AbstractVerticle
 
     private final SqlClient sqlClient;
 
+    private final Pool batchPool;
+
     private final Jwt jwt;
 
+    private final EntityCache entityCache;
+
+    private final ListResponseCache listCache;
+
+    private final JsonObject config;
+
     private final int port;
 
-    public HttpServer(SqlClient sqlClient, Jwt jwt, int port)
+    private final JsonObject serverConfig;
+
+    public HttpServer(SqlClient sqlClient, Pool batchPool, Jwt jwt, EntityCache entityCache, ListResponseCache listCache, JsonObject config)
     {
         this.sqlClient = sqlClient;
 
+        this.batchPool = batchPool;
+
         this.jwt = jwt;
 
-        this.port = port;
+        this.entityCache = entityCache;
+
+        this.listCache = listCache;
+
+        this.config = config;
+
+        this.port = config.getInteger(Constants.HTTP_PORT);
+
+        this.serverConfig = config.getJsonObject(Constants.SERVER, new JsonObject());
     }
 
     @Override
@@ -44,10 +73,15 @@ public class HttpServer extends AbstractVerticle
         {
             var router = setupRouter();
 
-            vertx.createHttpServer()
+            vertx.createHttpServer(serverOptions())
                     .requestHandler(router)
                     .listen(port)
-                    .onSuccess(server -> startPromise.complete())
+                    .onSuccess(server -> {
+
+                        logger.info("HTTP server listening on {} (native transport: {})", port, vertx.isNativeTransportEnabled());
+
+                        startPromise.complete();
+                    })
                     .onFailure(startPromise::fail);
         }
         catch (Exception exception)
@@ -58,11 +92,45 @@ public class HttpServer extends AbstractVerticle
         }
     }
 
+    /**
+     * Builds the server options from the {@code server} config section: h2c, response compression and TCP tuning
+     *
+     * @return the HTTP server options
+     */
+    private HttpServerOptions serverOptions()
+    {
+        var compression = serverConfig.getJsonObject(Constants.SERVER_COMPRESSION, new JsonObject());
+
+        return new HttpServerOptions()
+                // HTTP/2 over cleartext, by prior knowledge or by upgrade from HTTP/1.1
+                .setHttp2ClearTextEnabled(serverConfig.getBoolean(Constants.SERVER_HTTP2_CLEAR_TEXT, true))
+                // Offers gzip and deflate, whichever the client accepts
+                .setCompressionSupported(compression.getBoolean(Constants.SERVER_COMPRESSION_ENABLED, true))
+                .setCompressionLevel(compression.getInteger(Constants.SERVER_COMPRESSION_LEVEL, Constants.DEFAULT_SERVER_COMPRESSION_LEVEL))
+                .setTcpNoDelay(serverConfig.getBoolean(Constants.SERVER_TCP_NO_DELAY, true))
+                // Fast open needs the native transport and is ignored on NIO; keep-alive works on both
+                .setTcpFastOpen(serverConfig.getBoolean(Constants.SERVER_TCP_FAST_OPEN, true))
+                .setTcpKeepAlive(serverConfig.getBoolean(Constants.SERVER_TCP_KEEP_ALIVE, true))
+                .setIdleTimeout(serverConfig.getInteger(Constants.SERVER_IDLE_TIMEOUT_SECONDS, Constants.DEFAULT_SERVER_IDLE_TIMEOUT_SECONDS));
+    }
+
     private Router setupRouter()
     {
         try{
             var router = Router.router(vertx);
 
+            var compression = serverConfig.getJsonObject(Constants.SERVER_COMPRESSION, new JsonObject());
+
+            var compressionMinSize = compression.getInteger(Constants.SERVER_COMPRESSION_MIN_SIZE, Constants.DEFAULT_SERVER_COMPRESSION_MIN_SIZE);
+
+            // Small bodies are not worth compressing; ApiResponse reads the threshold from the context
+            router.route().handler(ctx -> {
+
+                ctx.put(Constants.COMPRESSION_MIN_SIZE, compressionMinSize);
+
+                ctx.next();
+            });
+
             // Global handler for request body parsing
             router.route().handler(BodyHandler.create());
 
@@ -73,16 +141,32 @@ public class HttpServer extends AbstractVerticle
 
             router.route("/api/credentials/*")
                     .handler(jwtHandler)
-                    .subRouter(new CredentialRoutes(sqlClient).init(Router.router(vertx)));
+                    .subRouter(new CredentialRoutes(sqlClient, entityCache, listCache).init(Router.router(vertx)));
 
 
             router.route("/api/discoveries/*")
                     .handler(jwtHandler)
-                    .subRouter(new DiscoveryRoutes(sqlClient).init(Router.router(vertx)));
+                    .subRouter(new DiscoveryRoutes(sqlClient, entityCache, listCache, config.getJsonObject(Constants.DISCOVERY_JOBS, new JsonObject())).init(Router.router(vertx)));
 
             router.route("/api/provisions/*")
                     .handler(jwtHandler)
-                    .subRouter(new ProvisionRoutes(sqlClient).init(Router.router(vertx)));
+                    .subRouter(new ProvisionRoutes(sqlClient, entityCache, listCache).init(Router.router(vertx)));
+
+            router.route("/api/batch/*")
+                    .handler(jwtHandler)
+                    .subRouter(new BatchRoutes(batchPool, config.getJsonObject(Constants.BATCH, new JsonObject())).init(Router.router(vertx)));
+
+            router.route("/api/changes/*")
+                    .handler(jwtHandler)
+                    .subRouter(new ChangeRoutes(sqlClient).init(Router.router(vertx)));
+
+            router.route("/api/live/*")
+                    .handler(jwtHandler)
+                    .subRouter(new LiveMetricsRoutes(vertx, config.getJsonObject(Constants.LIVE, new JsonObject())).init(Router.router(vertx)));
+
+            router.route("/api/metrics/*")
+                    .handler(jwtHandler)
+                    .subRouter(new MetricsRoutes().init(Router.router(vertx)));
 
             // Global error handler
 
@@ -1,15 +1,30 @@
 package org.example;
 
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
+import io.vertx.core.ThreadingModel;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.json.JsonObject;
 import org.example.ApiServer.HttpServer;
 import org.example.constants.Constants;
 import org.example.db.DBConfig;
 import org.example.db.DbQueryHelper;
+import org.example.db.EntityCache;
+import org.example.engine.DiscoveryBatchRequest;
+import org.example.engine.DiscoveryBatchResult;
 import org.example.engine.DiscoveryEngine;
+import org.example.engine.DiscoveryRequest;
+import org.example.engine.DiscoveryResult;
+import org.example.engine.DiscoveryJobWorker;
+import org.example.engine.MetricSample;
 import org.example.engine.PollingEngine;
+import org.example.utils.CircuitBreakerRegistry;
 import org.example.utils.ConfigLoader;
 import org.example.utils.Jwt;
+import org.example.utils.ListResponseCache;
+import org.example.utils.LocalCodec;
+import org.example.utils.ReachabilityCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,7 +34,10 @@ public class Main {
 
     public static void main(String[] args)
     {
-        var vertx = Vertx.vertx();
+        // Uses epoll when the native library is on the classpath (mvn -Pepoll), NIO otherwise
+        var vertx = Vertx.vertx(new VertxOptions().setPreferNativeTransport(ConfigLoader.preferNativeTransport()));
+
+        logger.info("Native transport enabled: {}", vertx.isNativeTransportEnabled());
 
         startServer(vertx)
                 .onSuccess(v -> logger.info("HTTP server started successfully"))
@@ -31,6 +49,26 @@ public class Main {
                 });
     }
 
+    /**
+     * Registers the codecs that pass engine payloads between verticles by reference.
+     *
+     * @param vertx The Vert.x instance.
+     */
+    private static void registerLocalCodecs(Vertx vertx)
+    {
+        var eventBus = vertx.eventBus();
+
+        eventBus.registerDefaultCodec(DiscoveryRequest.class, new LocalCodec<>(DiscoveryRequest.class));
+
+        eventBus.registerDefaultCodec(DiscoveryResult.class, new LocalCodec<>(DiscoveryResult.class));
+
+        eventBus.registerDefaultCodec(DiscoveryBatchRequest.class, new LocalCodec<>(DiscoveryBatchRequest.class));
+
+        eventBus.registerDefaultCodec(DiscoveryBatchResult.class, new LocalCodec<>(DiscoveryBatchResult.class));
+
+        eventBus.registerDefaultCodec(MetricSample.class, new LocalCodec<>(MetricSample.class));
+    }
+
     /**
      * Loads configuration, initializes database pool and HTTP server, and deploys the server, discovery, and polling verticles.
      *
@@ -46,21 +84,60 @@ public class Main {
 
                             var dbHelper = new DbQueryHelper(pgPool);
 
-                            // Deploy the HttpServer verticle
-                            return vertx.deployVerticle(new HttpServer(pgPool, new Jwt(), config.getInteger(Constants.HTTP_PORT)))
+                            registerLocalCodecs(vertx);
+
+                            // Shared by discovery and polling so both skip targets known to be down
+                            var circuitBreakers = new CircuitBreakerRegistry(config.getJsonObject(Constants.CIRCUIT_BREAKER, new JsonObject()));
+
+                            var reachability = new ReachabilityCache(config.getJsonObject(Constants.REACHABILITY, new JsonObject()), circuitBreakers);
+
+                            // The pool, the JWT provider and the caches are thread-safe and shared by every HttpServer instance
+                            var jwt = new Jwt(vertx, config.getJsonObject(Constants.JWT_CACHE, new JsonObject()));
+
+                            var entityCache = new EntityCache(config.getJsonObject(Constants.ENTITY_CACHE, new JsonObject()));
+
+                            var listCache = new ListResponseCache(vertx, config.getJsonObject(Constants.LIST_CACHE, new JsonObject()));
+
+                            // Batches need a connection of their own, which the pipelined client cannot hand out
+                            var batchPool = DBConfig.createBatchPool(vertx, config);
+
+                            var serverConfig = config.getJsonObject(Constants.SERVER, new JsonObject());
+
+                            var configuredInstances = serverConfig.getInteger(Constants.SERVER_INSTANCES, 0);
+
+                            var serverOptions = new DeploymentOptions()
+                                    .setInstances(configuredInstances > 0 ? configuredInstances : Runtime.getRuntime().availableProcessors());
+
+                            // Deploy the HttpServer verticles; the instances share the port and Vert.x spreads connections between them
+                            return vertx.deployVerticle(() -> new HttpServer(pgPool, batchPool, jwt, entityCache, listCache, config), serverOptions)
 
                                     .compose(httpServerId -> {
 
-                                        logger.info("HttpServer verticle deployed successfully with ID: {}", httpServerId);
+                                        logger.info("{} HttpServer instances deployed successfully with ID: {}", serverOptions.getInstances(), httpServerId);
+
+                                        var engineConfig = config.getJsonObject(Constants.DISCOVERY_ENGINE, new JsonObject());
+
+                                        var sweepConfig = config.getJsonObject(Constants.SWEEP, new JsonObject());
+
+                                        var engineOptions = new DeploymentOptions()
+                                                .setInstances(engineConfig.getInteger(Constants.DISCOVERY_ENGINE_INSTANCES, Constants.DEFAULT_DISCOVERY_ENGINE_INSTANCES))
+                                                .setThreadingModel(engineConfig.getBoolean(Constants.DISCOVERY_ENGINE_WORKER, false) ? ThreadingModel.WORKER : ThreadingModel.EVENT_LOOP);
 
-                                        // Deploy DiscoveryEngine verticle
-                                        return vertx.deployVerticle(new DiscoveryEngine(dbHelper))
+                                        // Deploy DiscoveryEngine verticles; the event bus round-robins requests between the instances
+                                        return vertx.deployVerticle(() -> new DiscoveryEngine(dbHelper, reachability, sweepConfig, engineConfig), engineOptions)
                                                 .compose(discoveryEngineId -> {
 
-                                                    logger.info("DiscoveryEngine verticle deployed successfully with ID: {}", discoveryEngineId);
+                                                    logger.info("{} DiscoveryEngine instances deployed successfully with ID: {}", engineOptions.getInstances(), discoveryEngineId);
+
+                                                    // Deploy DiscoveryJobWorker verticle
+                                                    return vertx.deployVerticle(new DiscoveryJobWorker(dbHelper, config.getJsonObject(Constants.DISCOVERY_JOBS, new JsonObject())));
+                                                })
+                                                .compose(discoveryJobWorkerId -> {
+
+                                                    logger.info("DiscoveryJobWorker verticle deployed successfully with ID: {}", discoveryJobWorkerId);
 
                                                     // Deploy PollingEngine verticle
-                                                    return vertx.deployVerticle(new PollingEngine(dbHelper))
+                                                    return vertx.deployVerticle(new PollingEngine(dbHelper, config.getJsonObject(Constants.POLLING, new JsonObject()), reachability))
 
                                                             .compose(pollingEngineId -> {
 
@@ -78,9 +155,24 @@ public class Main {
 
                                                 logger.info("Shutting down application and closing resources");
 
-                                                pgPool.close();
-
-                                                vertx.close();
+                                                try
+                                                {
+                                                    // Undeploying runs PollingEngine.stop(), which checkpoints the schedule through the pool, so the pools close last
+                                                    vertx.close()
+                                                            .onComplete(closed -> {
+
+                                                                pgPool.close();
+
+                                                                batchPool.close();
+                                                            })
+                                                            .toCompletionStage()
+                                                            .toCompletableFuture()
+                                                            .join();
+                                                }
+                                                catch (Exception exception)
+                                                {
+                                                    logger.error("Failed to shut down cleanly: {}", exception.getMessage());
+                                                }
                                             }));
                                         }
                                     });
@@ -48,6 +48,238 @@ public final class Constants
 
     public static final String HTTP_PORT = "http.port";
 
+    // Polling Config Keys
+    public static final String POLLING = "polling";
+
+    public static final String POLLING_INTERVAL_MS = "intervalMs";
+
+    public static final String POLLING_TICK_MS = "tickMs";
+
+    public static final String POLLING_MAX_IN_FLIGHT_BATCHES = "maxInFlightBatches";
+
+    public static final String POLLING_CHECKPOINT_MS = "checkpointMs";
+
+    public static final String POLLING_MAX_BACKOFF_MS = "maxBackoffMs";
+
+    public static final String POLLING_STABLE_SLOWDOWN = "stableSlowdown";
+
+    public static final String POLLING_STABLE_TOLERANCE = "stableTolerance";
+
+    public static final String POLLING_STABLE_SAMPLES = "stableSamples";
+
+    public static final String POLLING_STABLE_MULTIPLIER = "stableIntervalMultiplier";
+
+    public static final long DEFAULT_POLLING_INTERVAL_MS = 10000;
+
+    public static final int MIN_POLL_INTERVAL_MS = 1000;
+
+    public static final long DEFAULT_POLLING_TICK_MS = 1000;
+
+    public static final int DEFAULT_POLLING_MAX_IN_FLIGHT_BATCHES = 2;
+
+    public static final long DEFAULT_POLLING_CHECKPOINT_MS = 30000;
+
+    public static final long DEFAULT_POLLING_MAX_BACKOFF_MS = 600000; // 10 minutes
+
+    public static final double DEFAULT_POLLING_STABLE_TOLERANCE = 0.01;
+
+    public static final int DEFAULT_POLLING_STABLE_SAMPLES = 3;
+
+    public static final long DEFAULT_POLLING_STABLE_MULTIPLIER = 3;
+
+    // Circuit breaker Config Keys
+    public static final String CIRCUIT_BREAKER = "circuitBreaker";
+
+    public static final String CIRCUIT_FAILURE_THRESHOLD = "failureThreshold";
+
+    public static final String CIRCUIT_OPEN_MS = "openMs";
+
+    public static final String CIRCUIT_HALF_OPEN_MAX_PROBES = "halfOpenMaxProbes";
+
+    public static final int DEFAULT_CIRCUIT_FAILURE_THRESHOLD = 3;
+
+    public static final long DEFAULT_CIRCUIT_OPEN_MS = 60000;
+
+    public static final int DEFAULT_CIRCUIT_HALF_OPEN_MAX_PROBES = 1;
+
+    // Reachability cache Config Keys
+    public static final String REACHABILITY = "reachability";
+
+    public static final String REACHABILITY_TTL_MS = "ttlMs";
+
+    public static final String REACHABILITY_MAX_ENTRIES = "maxEntries";
+
+    public static final long DEFAULT_REACHABILITY_TTL_MS = 5000;
+
+    public static final int DEFAULT_REACHABILITY_MAX_ENTRIES = 10000;
+
+    // Entity cache Config Keys
+    public static final String ENTITY_CACHE = "entityCache";
+
+    public static final String ENTITY_CACHE_TTL_MS = "ttlMs";
+
+    public static final String ENTITY_CACHE_MAX_ENTRIES = "maxEntries";
+
+    public static final long DEFAULT_ENTITY_CACHE_TTL_MS = 30000;
+
+    public static final int DEFAULT_ENTITY_CACHE_MAX_ENTRIES = 5000;
+
+    // Live metrics Config Keys
+    public static final String LIVE = "live";
+
+    public static final String LIVE_MAX_PENDING = "maxPendingPerConnection";
+
+    public static final String LIVE_HEARTBEAT_MS = "heartbeatMs";
+
+    public static final int DEFAULT_LIVE_MAX_PENDING = 256;
+
+    public static final long DEFAULT_LIVE_HEARTBEAT_MS = 30000;
+
+    // JWT verification cache Config Keys
+    public static final String JWT_CACHE = "jwtCache";
+
+    public static final String JWT_CACHE_MAX_ENTRIES = "maxEntries";
+
+    public static final int DEFAULT_JWT_CACHE_MAX_ENTRIES = 10000;
+
+    // List response cache Config Keys
+    public static final String LIST_CACHE = "listCache";
+
+    public static final String LIST_CACHE_MICRO_CACHE_MS = "microCacheMs";
+
+    public static final String LIST_CACHE_MAX_ENTRIES = "maxEntries";
+
+    public static final long DEFAULT_LIST_CACHE_MICRO_CACHE_MS = 0;
+
+    public static final int DEFAULT_LIST_CACHE_MAX_ENTRIES = 1000;
+
+    // Batch API Config Keys
+    public static final String BATCH = "batch";
+
+    public static final String BATCH_POOL_SIZE = "poolSize";
+
+    public static final String BATCH_MAX_OPERATIONS = "maxOperations";
+
+    public static final int DEFAULT_BATCH_POOL_SIZE = 2;
+
+    public static final int DEFAULT_BATCH_MAX_OPERATIONS = 500;
+
+    // Discovery job Config Keys
+    public static final String DISCOVERY_JOBS = "discoveryJobs";
+
+    public static final String DISCOVERY_JOBS_CONCURRENCY = "concurrency";
+
+    public static final String DISCOVERY_JOBS_SWEEP_MS = "sweepMs";
+
+    public static final String DISCOVERY_JOBS_TIMEOUT_MS = "requestTimeoutMs";
+
+    public static final String DISCOVERY_BULK_PARALLELISM = "bulkParallelism";
+
+    public static final String DISCOVERY_BULK_GROUP_SIZE = "bulkGroupSize";
+
+    public static final int DEFAULT_DISCOVERY_JOBS_CONCURRENCY = 4;
+
+    public static final int DEFAULT_DISCOVERY_BULK_PARALLELISM = 4;
+
+    public static final int DEFAULT_DISCOVERY_BULK_GROUP_SIZE = 50;
+
+    public static final String DISCOVERY_JOBS_SWEEP_TIMEOUT_MS = "sweepTimeoutMs";
+
+    public static final long DEFAULT_DISCOVERY_JOBS_SWEEP_TIMEOUT_MS = 1800000; // 30 minutes
+
+    public static final String DISCOVERY_JOBS_BUSY_BACKOFF_MS = "busyBackoffMs";
+
+    public static final long DEFAULT_DISCOVERY_JOBS_BUSY_BACKOFF_MS = 1000;
+
+    public static final String DISCOVERY_JOBS_RETENTION_MS = "retentionMs";
+
+    public static final long DEFAULT_DISCOVERY_JOBS_RETENTION_MS = 604800000; // 7 days
+
+    // Upper bound between checks for jobs whose lease ran out
+    public static final long DISCOVERY_JOBS_LEASE_CHECK_MS = 60000;
+
+    // HTTP server Config Keys
+    public static final String SERVER = "server";
+
+    public static final String SERVER_INSTANCES = "instances";
+
+    public static final String SERVER_HTTP2_CLEAR_TEXT = "h2c";
+
+    public static final String SERVER_COMPRESSION = "compression";
+
+    public static final String SERVER_COMPRESSION_ENABLED = "enabled";
+
+    public static final String SERVER_COMPRESSION_LEVEL = "level";
+
+    public static final String SERVER_COMPRESSION_MIN_SIZE = "minSize";
+
+    public static final String SERVER_TCP_NO_DELAY = "tcpNoDelay";
+
+    public static final String SERVER_TCP_FAST_OPEN = "tcpFastOpen";
+
+    public static final String SERVER_TCP_KEEP_ALIVE = "tcpKeepAlive";
+
+    public static final String SERVER_IDLE_TIMEOUT_SECONDS = "idleTimeoutSeconds";
+
+    public static final String SERVER_NATIVE_TRANSPORT = "nativeTransport";
+
+    public static final int DEFAULT_SERVER_COMPRESSION_LEVEL = 6;
+
+    public static final int DEFAULT_SERVER_COMPRESSION_MIN_SIZE = 1024;
+
+    public static final int DEFAULT_SERVER_IDLE_TIMEOUT_SECONDS = 0; // never
+
+    // Routing context key holding the compression threshold of the current server
+    public static final String COMPRESSION_MIN_SIZE = "compressionMinSize";
+
+    // Discovery engine Config Keys
+    public static final String DISCOVERY_ENGINE = "discoveryEngine";
+
+    public static final String DISCOVERY_ENGINE_INSTANCES = "instances";
+
+    public static final String DISCOVERY_ENGINE_WORKER = "worker";
+
+    public static final String DISCOVERY_ENGINE_MAX_IN_FLIGHT = "maxInFlight";
+
+    public static final String DISCOVERY_ENGINE_MAX_QUEUED = "maxQueued";
+
+    public static final int DEFAULT_DISCOVERY_ENGINE_INSTANCES = 1;
+
+    public static final int DEFAULT_DISCOVERY_ENGINE_MAX_IN_FLIGHT = 8;
+
+    public static final int DEFAULT_DISCOVERY_ENGINE_MAX_QUEUED = 32;
+
+    // Range sweep Config Keys
+    public static final String SWEEP = "sweep";
+
+    public static final String SWEEP_CONCURRENCY = "concurrency";
+
+    public static final String SWEEP_CONNECT_TIMEOUT_MS = "connectTimeoutMs";
+
+    public static final String SWEEP_PER_SUBNET_RATE = "perSubnetRate";
+
+    public static final String SWEEP_GROUP_SIZE = "groupSize";
+
+    public static final String SWEEP_MAX_PENDING_GROUPS = "maxPendingGroups";
+
+    public static final String SWEEP_MAX_ADDRESSES = "maxAddresses";
+
+    public static final int DEFAULT_SWEEP_CONCURRENCY = 512;
+
+    public static final int DEFAULT_SWEEP_CONNECT_TIMEOUT_MS = 1000;
+
+    public static final int DEFAULT_SWEEP_PER_SUBNET_RATE = 64;
+
+    public static final int DEFAULT_SWEEP_GROUP_SIZE = 50;
+
+    public static final int DEFAULT_SWEEP_MAX_PENDING_GROUPS = 2;
+
+    public static final long DEFAULT_SWEEP_MAX_ADDRESSES = 65536;
+
+    public static final long DEFAULT_DISCOVERY_JOBS_SWEEP_MS = 5000;
+
+    public static final long DEFAULT_DISCOVERY_JOBS_TIMEOUT_MS = 120000;
+
 
     public static final String CREDENTIAL_TABLE = "credentials";
 
@@ -67,6 +299,10 @@ public final class Constants
 
     public static final String POLLING_TABLE = "polling";
 
+    public static final String DISCOVERY_JOB_TABLE = "discovery_jobs";
+
+    public static final String CHANGE_LOG_TABLE = "change_log";
+
     // Field names
     public static final String FIELD_ID = "id";
 
@@ -84,11 +320,103 @@ public final class Constants
 
     public static final String CREDENTIAL_IDS = "credential_ids";
 
+    public static final String LAST_GOOD_CREDENTIAL_ID = "last_good_credential_id";
+
+    public static final String PROVISION_ID_COLUMN = "provision_id";
+
+    public static final int MAX_BULK_PROVISIONS = 1000;
+
+    public static final String IP_RANGE = "ip_range";
+
+    public static final String PORTS = "ports";
+
     public static final String CREDENTIAL_ID = "credential_id";
 
+    public static final String POLL_INTERVAL_MS = "poll_interval_ms";
+
+    public static final String NAME = "name";
+
+    public static final String CREATED_AT = "created_at";
+
+    public static final String UPDATED_AT = "updated_at";
+
+    // List query parameters
+    public static final String FIELDS = "fields";
+
+    public static final String FILTER_STATUS = "status";
+
+    public static final String FILTER_IP_PREFIX = "ip_prefix";
+
+    public static final String FILTER_UPDATED_SINCE = "updated_since";
+
+    // Live subscription fields
+    public static final String ALL = "all";
+
+    public static final String SUBSCRIBE = "subscribe";
+
+    public static final String UNSUBSCRIBE = "unsubscribe";
+
+    public static final String METRIC = "metric";
+
+    // Change feed fields
+    public static final String SINCE = "since";
+
+    public static final String LIMIT = "limit";
+
+    public static final String CURSOR = "cursor";
+
+    public static final String CHANGES = "changes";
+
+    public static final String HAS_MORE = "has_more";
+
+    public static final String TABLE = "table";
+
+    public static final String OPERATION = "operation";
+
+    public static final String ROW = "row";
+
+    public static final String INSERT = "insert";
+
+    public static final String DELETE = "delete";
+
+    public static final int DEFAULT_CHANGES_LIMIT = 500;
+
+    public static final int MAX_CHANGES_LIMIT = 5000;
+
+    // Batch fields
+    public static final String OPERATIONS = "operations";
+
+    public static final String TRANSACTION = "transaction";
+
+    public static final String COMMITTED = "committed";
+
+    public static final String RESULTS = "results";
+
+    public static final String INDEX = "index";
+
+    public static final String MODULE = "module";
+
+    public static final String ACTION = "action";
+
+    public static final String CREATE = "create";
+
+    public static final String UPDATE = "update";
+
+    public static final String PROVISIONED = "provisioned";
+
+    public static final String SUCCEEDED = "succeeded";
+
+    public static final String FAILED = "failed";
+
     // Event bus address
     public static final String DISCOVERY_ADDRESS = "discovery.engine";
 
+    public static final String DISCOVERY_JOBS_ADDRESS = "discovery.jobs";
+
+    public static final String DISCOVERY_BATCH_ADDRESS = "discovery.engine.batch";
+
+    public static final String LIVE_METRICS_ADDRESS = "metrics.live";
+
     // Status and error codes
     public static final String STATUS = "status";
 
@@ -121,10 +449,78 @@ public final class Constants
 
     public static final String SQL_SELECT_ALL = "SELECT * FROM %s";
 
+    public static final String SQL_SELECT_COLUMNS = "SELECT %s FROM %s";
+
+    public static final String SQL_SELECT_ROWS_BY_IDS = "SELECT * FROM %s WHERE id = ANY($1)";
+
+    // Only transactions below the snapshot's xmin are finished, so the (txid, id) order never gains entries behind a cursor
+    public static final String SQL_SELECT_CHANGES = "SELECT id, txid, table_name, row_id, operation FROM change_log " +
+            "WHERE (txid, id) > ($1, $2) AND txid < txid_snapshot_xmin(txid_current_snapshot()) ORDER BY txid, id LIMIT $3";
+
+    public static final String SQL_ENQUEUE_DISCOVERY_JOB = "INSERT INTO discovery_jobs (discovery_id) " +
+            "SELECT id FROM discoveries WHERE id = $1 RETURNING id, discovery_id, status, created_at";
+
+    public static final String SQL_CLAIM_DISCOVERY_JOBS = "UPDATE discovery_jobs SET status = 'running', started_at = CURRENT_TIMESTAMP " +
+            "WHERE id IN (SELECT id FROM discovery_jobs WHERE status = 'queued' ORDER BY id LIMIT $1 FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, discovery_id";
+
+    public static final String SQL_FINISH_DISCOVERY_JOB = "UPDATE discovery_jobs SET status = $1, result = $2, error = $3, " +
+            "finished_at = CURRENT_TIMESTAMP WHERE id = $4";
+
+    public static final String SQL_REQUEUE_DISCOVERY_JOB = "UPDATE discovery_jobs SET status = 'queued', started_at = NULL WHERE id = $1";
+
+    // Only jobs running for longer than the lease ($1 ms); younger ones may still be running in this process
+    public static final String SQL_REQUEUE_DISCOVERY_JOBS = "UPDATE discovery_jobs SET status = 'queued', started_at = NULL " +
+            "WHERE status = 'running' AND started_at < CURRENT_TIMESTAMP - make_interval(secs => $1::float8 / 1000)";
+
+    public static final String SQL_DELETE_FINISHED_DISCOVERY_JOBS = "DELETE FROM discovery_jobs " +
+            "WHERE finished_at < CURRENT_TIMESTAMP - make_interval(secs => $1::float8 / 1000)";
+
+    public static final String SQL_SELECT_DISCOVERIES_BY_IDS = "SELECT * FROM discoveries WHERE id = ANY($1) ORDER BY id";
+
+    // Provisions every listed discovery that is ready in one statement; the unique index on ip skips devices already provisioned.
+    // Of several listed discoveries with one IP, only the lowest ID is a candidate, so provision_id is set for that one alone
+    public static final String SQL_PROVISION_DISCOVERIES = "WITH requested AS (SELECT id, ip, status FROM discoveries WHERE id = ANY($1)), "
+            + "candidates AS (SELECT DISTINCT ON (ip) id, ip, port, credential_ids, last_good_credential_id FROM discoveries "
+            + "WHERE id = ANY($1) AND ip IS NOT NULL AND status IS NOT NULL AND status <> 'pending' ORDER BY ip, id), "
+            + "inserted AS (INSERT INTO provisions (ip, port, credential_ids, last_good_credential_id, poll_interval_ms) "
+            + "SELECT ip, COALESCE(port, 22), credential_ids, last_good_credential_id, $2::int FROM candidates ORDER BY id "
+            + "ON CONFLICT (ip) DO NOTHING RETURNING id, ip) "
+            + "SELECT r.id AS discovery_id, r.ip, r.status, i.id AS provision_id FROM requested r "
+            + "LEFT JOIN candidates c ON c.id = r.id LEFT JOIN inserted i ON i.ip = c.ip ORDER BY r.id";
+
+    public static final String SQL_SELECT_DISCOVERIES_BY_STATUS = "SELECT * FROM discoveries WHERE status = $1 ORDER BY id";
+
+    public static final String SQL_DELETE_DISCOVERY_RESULTS = "DELETE FROM discovery_results WHERE discovery_id = $1";
+
+    public static final String SQL_UPSERT_DISCOVERY_RESULT = "INSERT INTO discovery_results (discovery_id, ip, port, status) VALUES ($1, $2, $3, $4) " +
+            "ON CONFLICT (discovery_id, ip, port) DO UPDATE SET status = EXCLUDED.status, discovered_at = CURRENT_TIMESTAMP";
+
+    public static final String SQL_UPDATE_PROVISION_LAST_GOOD_CREDENTIAL = "UPDATE provisions SET last_good_credential_id = $1 WHERE id = $2";
+
+    public static final String SQL_TRY_INSTANCE_LOCK = "SELECT pg_try_advisory_lock($1)";
+
+    // Advisory lock key that marks the database as in use by one NMS process
+    public static final long INSTANCE_LOCK_KEY = 0x4E4D535632L; // "NMSV2"
+
+    public static final String SQL_SELECT_POLL_SCHEDULE = "SELECT provision_id, next_due_at, failures, stable_count FROM polling_schedule";
+
+    public static final String SQL_UPSERT_POLL_SCHEDULE = "INSERT INTO polling_schedule (provision_id, next_due_at, failures, stable_count, updated_at) " +
+            "VALUES ($1, $2, $3, $4, CURRENT_TIMESTAMP) ON CONFLICT (provision_id) DO UPDATE SET " +
+            "next_due_at = EXCLUDED.next_due_at, failures = EXCLUDED.failures, stable_count = EXCLUDED.stable_count, updated_at = EXCLUDED.updated_at";
+
+    public static final String SQL_DELETE_STALE_POLL_SCHEDULE = "DELETE FROM polling_schedule WHERE provision_id <> ALL($1)";
+
     //HTTP status code
 
     public static final int HTTP_OK = 200;
 
+    public static final int HTTP_CREATED = 201;
+
+    public static final int HTTP_ACCEPTED = 202;
+
+    public static final int HTTP_NOT_MODIFIED = 304;
+
     public static final int HTTP_BAD_REQUEST = 400;
 
     public static final int HTTP_UNAUTHORIZED = 401;
@@ -133,8 +529,14 @@ public final class Constants
 
     public static final int HTTP_NOT_FOUND = 404;
 
+    public static final int HTTP_CONFLICT = 409;
+
+    public static final String SQL_STATE_UNIQUE_VIOLATION = "23505";
+
     public static final int HTTP_INTERNAL_SERVER_ERROR = 500;
 
+    public static final int HTTP_SERVICE_UNAVAILABLE = 503;
+
     public static final String TYPE = "type";
 
     public static final String SSH = "ssh";
@@ -163,5 +565,31 @@ public final class Constants
 
     public static final String UP = "up";
 
+    public static final String JOB_ID = "jobId";
+
+    public static final String IDS = "ids";
+
+    public static final String FILTER = "filter";
+
+    public static final String ERROR = "error";
+
+    public static final String DONE = "done";
+
+    public static final String TOTAL = "total";
+
+    public static final String ENGINE_BUSY = "busy";
+
+    public static final String SCANNED = "scanned";
+
+    public static final String RESPONSIVE = "responsive";
+
+    public static final String DISCOVERED = "discovered";
+
+    public static final String JOB_QUEUED = "queued";
+
+    public static final String JOB_COMPLETED = "completed";
+
+    public static final String JOB_FAILED = "failed";
+
 
 }
@@ -5,8 +5,11 @@ import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 import io.vertx.pgclient.PgBuilder;
 import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.pgclient.PgConnection;
+import io.vertx.sqlclient.Pool;
 import io.vertx.sqlclient.PoolOptions;
 import io.vertx.sqlclient.SqlClient;
+import io.vertx.sqlclient.Tuple;
 import org.example.constants.Constants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,12 +29,7 @@ public class DBConfig {
 
         var dbConfig = config.getJsonObject(Constants.DB);
 
-        var connectOptions = new PgConnectOptions()
-                .setPort(dbConfig.getInteger(Constants.DB_PORT, Constants.DEFAULT_DB_PORT))
-                .setHost(dbConfig.getString(Constants.DB_HOST, Constants.DEFAULT_DB_HOST))
-                .setDatabase(dbConfig.getString(Constants.DB_DATABASE, Constants.DEFAULT_DB_DATABASE))
-                .setUser(dbConfig.getString(Constants.DB_USER, Constants.DEFAULT_DB_USER))
-                .setPassword(dbConfig.getString(Constants.DB_PASSWORD, Constants.DEFAULT_DB_PASSWORD));
+        var connectOptions = connectOptions(dbConfig);
 
         var poolOptions = new PoolOptions()
                 .setMaxSize(dbConfig.getInteger(Constants.DB_POOL_SIZE, Constants.DEFAULT_DB_POOL_SIZE));
@@ -45,6 +43,7 @@ public class DBConfig {
 
         // Test the connection
         return client.query("SELECT 1").execute()
+                .compose(result -> acquireInstanceLock(vertx, connectOptions))
                 .compose(result -> initializeSchema(vertx, client))
                 .map(client)
                 .recover(err -> {
@@ -57,6 +56,74 @@ public class DBConfig {
                 });
     }
 
+    /**
+     * Creates the small pool the batch API takes connections from. The shared client pipelines each query
+     * on whichever connection is free, so it cannot run a batch on one connection or in one transaction.
+     *
+     * @param vertx  The Vert.x instance.
+     * @param config The configuration JsonObject containing database connection details.
+     * @return The pool; connections are opened when first needed.
+     */
+    public static Pool createBatchPool(Vertx vertx, JsonObject config)
+    {
+        var batchConfig = config.getJsonObject(Constants.BATCH, new JsonObject());
+
+        var poolOptions = new PoolOptions()
+                .setMaxSize(batchConfig.getInteger(Constants.BATCH_POOL_SIZE, Constants.DEFAULT_BATCH_POOL_SIZE));
+
+        return PgBuilder
+                .pool()
+                .with(poolOptions)
+                .connectingTo(connectOptions(config.getJsonObject(Constants.DB)))
+                .using(vertx)
+                .build();
+    }
+
+    /**
+     * Makes sure this is the only process running against the database. The table versions behind ETags,
+     * the entity cache and the list cache only count writes made in this process, so a second process
+     * writing to the same tables would leave this one serving stale rows and 304s.
+     * <p>
+     * The lock is a session-level advisory lock held by a connection of its own. It is released when that
+     * connection closes, so a process that dies frees it, and Vert.x closes it on shutdown.
+     *
+     * @param vertx          The Vert.x instance.
+     * @param connectOptions The database connection options.
+     * @return A Future that fails if another process holds the lock.
+     */
+    private static Future<Void> acquireInstanceLock(Vertx vertx, PgConnectOptions connectOptions)
+    {
+        return PgConnection.connect(vertx, connectOptions)
+                .compose(connection -> connection.preparedQuery(Constants.SQL_TRY_INSTANCE_LOCK)
+                        .execute(Tuple.of(Constants.INSTANCE_LOCK_KEY))
+                        .compose(rows -> {
+
+                            if (!rows.iterator().next().getBoolean(0))
+                            {
+                                connection.close();
+
+                                return Future.failedFuture("Another process is already running against database " + connectOptions.getDatabase());
+                            }
+
+                            connection.closeHandler(v -> logger.error("Lost the database connection holding the instance lock; another process may now start against the same database"));
+
+                            logger.info("Acquired the database instance lock");
+
+                            return Future.<Void>succeededFuture();
+                        })
+                        .onFailure(err -> connection.close()));
+    }
+
+    private static PgConnectOptions connectOptions(JsonObject dbConfig)
+    {
+        return new PgConnectOptions()
+                .setPort(dbConfig.getInteger(Constants.DB_PORT, Constants.DEFAULT_DB_PORT))
+                .setHost(dbConfig.getString(Constants.DB_HOST, Constants.DEFAULT_DB_HOST))
+                .setDatabase(dbConfig.getString(Constants.DB_DATABASE, Constants.DEFAULT_DB_DATABASE))
+                .setUser(dbConfig.getString(Constants.DB_USER, Constants.DEFAULT_DB_USER))
+                .setPassword(dbConfig.getString(Constants.DB_PASSWORD, Constants.DEFAULT_DB_PASSWORD));
+    }
+
     /**
      * Initializes the schema by executing the SQL queries from the schema file.
      *
@@ -14,6 +14,7 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -22,6 +23,8 @@ public class DbQueryHelper
 
     private static final Logger logger = LoggerFactory.getLogger(DbQueryHelper.class);
 
+    private static final Pattern IDENTIFIER = Pattern.compile("^[a-z_][a-z0-9_]*$");
+
     private final SqlClient client;
 
     public DbQueryHelper(SqlClient client)
@@ -38,6 +41,24 @@ public class DbQueryHelper
      */
 
     public Future<RowSet<Row>> insert(String table, JsonObject data)
+    {
+        return insert(table, data, "").mapEmpty();
+    }
+
+    /**
+     * Inserts a new record into the specified table and returns its generated ID.
+     *
+     * @param table The table name.
+     * @param data  The data to insert as a JsonObject.
+     * @return Future containing the ID of the new record.
+     */
+    public Future<Integer> insertReturningId(String table, JsonObject data)
+    {
+        return insert(table, data, " RETURNING " + Constants.FIELD_ID)
+                .map(rows -> rows.iterator().next().getInteger(Constants.FIELD_ID));
+    }
+
+    private Future<RowSet<Row>> insert(String table, JsonObject data, String returning)
     {
         try
         {
@@ -52,7 +73,7 @@ public class DbQueryHelper
                     .collect(Collectors.joining(", "));
 
 
-            var query = String.format(Constants.SQL_INSERT, table, columns, placeholders);
+            var query = String.format(Constants.SQL_INSERT, table, columns, placeholders) + returning;
 
             var values = Tuple.tuple();
 
@@ -75,7 +96,7 @@ public class DbQueryHelper
             return client
                     .preparedQuery(query)
                     .execute(values)
-                    .mapEmpty();
+                    .onComplete(result -> TableVersions.bump(table, List.of()));
         }
         catch (Exception exception)
         {
@@ -121,6 +142,7 @@ public class DbQueryHelper
             return client
                     .preparedQuery(query)
                     .execute(values)
+                    .onComplete(result -> bump(table, idColumn, idValue))
                     .mapEmpty();
         }
         catch (Exception exception)
@@ -151,6 +173,7 @@ public class DbQueryHelper
             return client
                     .preparedQuery(query)
                     .execute(Tuple.of(idValue))
+                    .onComplete(result -> bump(table, idColumn, idValue))
                     .mapEmpty();
         }
         catch(Exception exception)
@@ -162,6 +185,21 @@ public class DbQueryHelper
 
     }
 
+    /**
+     * Moves the table version after a write matched on one column; only a write by row ID names its row.
+     */
+    private static void bump(String table, String idColumn, Object idValue)
+    {
+        if (Constants.FIELD_ID.equals(idColumn) && idValue != null)
+        {
+            TableVersions.bump(table, List.of(idValue));
+        }
+        else
+        {
+            TableVersions.bump(table);
+        }
+    }
+
     /**
      * Fetches a single record from the specified table by ID column and value.
      *
@@ -233,4 +271,153 @@ public class DbQueryHelper
         }
 
     }
+
+    /**
+     * Fetches records from the specified table as raw rows, for callers that encode them directly.
+     * <p>
+     * Filters are pushed into a parameterized WHERE clause:
+     * {@code status} matches the status column exactly, {@code ip_prefix} matches the start of the ip column
+     * and {@code updated_since} keeps rows updated after the given time.
+     *
+     * @param table   The table name.
+     * @param columns The columns to select; all columns if empty. Callers must whitelist them.
+     * @param filters Filter values keyed by filter name.
+     * @return Future containing the rows.
+     */
+    public Future<RowSet<Row>> fetchAllRows(String table, List<String> columns, Map<String, Object> filters)
+    {
+        try
+        {
+            for (var column : columns)
+            {
+                if (!IDENTIFIER.matcher(column).matches())
+                {
+                    return Future.failedFuture("Invalid column name: " + column);
+                }
+            }
+
+            var query = new StringBuilder(columns.isEmpty()
+                    ? String.format(Constants.SQL_SELECT_ALL, table)
+                    : String.format(Constants.SQL_SELECT_COLUMNS, String.join(", ", columns), table));
+
+            var values = Tuple.tuple();
+
+            var conditions = new ArrayList<String>();
+
+            for (var filter : filters.entrySet())
+            {
+                var placeholder = "$" + (values.size() + 1);
+
+                switch (filter.getKey())
+                {
+                    case Constants.FILTER_STATUS ->
+                    {
+                        conditions.add(Constants.STATUS + " = " + placeholder);
+
+                        values.addValue(filter.getValue());
+                    }
+
+                    case Constants.FILTER_IP_PREFIX ->
+                    {
+                        conditions.add(Constants.IP + " LIKE " + placeholder);
+
+                        values.addValue(escapeLike(filter.getValue().toString()) + "%");
+                    }
+
+                    case Constants.FILTER_UPDATED_SINCE ->
+                    {
+                        conditions.add(Constants.UPDATED_AT + " > " + placeholder);
+
+                        values.addValue(filter.getValue());
+                    }
+
+                    default ->
+                    {
+                        return Future.failedFuture("Unsupported filter: " + filter.getKey());
+                    }
+                }
+            }
+
+            if (!conditions.isEmpty())
+            {
+                query.append(" WHERE ").append(String.join(" AND ", conditions));
+            }
+
+            logger.info("Executing SELECT query: {}", query);
+
+            return client
+                    .preparedQuery(query.toString())
+                    .execute(values);
+        }
+        catch (Exception exception)
+        {
+            logger.error("Unexpected error during FETCH ALL operation for table {}: {}", table, exception.getMessage(), exception);
+
+            return Future.failedFuture("Unexpected error during fetch all: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Escapes LIKE wildcards so a prefix filter matches literally.
+     */
+    private static String escapeLike(String value)
+    {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Executes a parameterized query.
+     *
+     * @param query  The SQL query.
+     * @param params The query parameters.
+     * @return Future containing the resulting rows.
+     */
+    public Future<RowSet<Row>> execute(String query, Tuple params)
+    {
+        try
+        {
+            logger.debug("Executing query: {}", query);
+
+            return client
+                    .preparedQuery(query)
+                    .execute(params);
+        }
+        catch (Exception exception)
+        {
+            logger.error("Unexpected error executing query {}: {}", query, exception.getMessage(), exception);
+
+            return Future.failedFuture("Unexpected error executing query: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Executes a parameterized query once per parameter tuple in a single batch.
+     *
+     * @param query     The SQL query.
+     * @param batch     The parameter tuples.
+     * @return Future representing completion of the batch.
+     */
+    public Future<Void> executeBatch(String query, List<Tuple> batch)
+    {
+        try
+        {
+            if (batch.isEmpty())
+            {
+                return Future.succeededFuture();
+            }
+
+            logger.debug("Executing batch of {} for query: {}", batch.size(), query);
+
+            return client
+                    .preparedQuery(query)
+                    .executeBatch(batch)
+                    .mapEmpty();
+        }
+        catch (Exception exception)
+        {
+            logger.error("Unexpected error executing batch {}: {}", query, exception.getMessage(), exception);
+
+            return Future.failedFuture("Unexpected error executing batch: " + exception.getMessage());
+        }
+    }
 }
@@ -0,0 +1,142 @@
+package org.example.db;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import org.example.constants.Constants;
+import org.example.utils.Metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, least-recently-used read-through cache of single rows, shared by all HttpServer instances.
+ * <p>
+ * Entries are dropped when {@link TableVersions} reports a write to their row, so writes made by the
+ * engines invalidate them as well as writes made through the API, and other rows of the table stay cached.
+ * Each entry also remembers the table's bulk version it was read at and is ignored once a write whose
+ * rows are not known has happened since. Entries also expire after {@code ttlMs} to bound staleness from changes made by hand in the database.
+ */
+public class EntityCache
+{
+    private static final String METRIC_PREFIX = "entity.cache.";
+
+    private final long ttlMs;
+
+    private final Map<String, Entry> entries;
+
+    private final Map<String, LongAdder[]> hitsAndMisses = new ConcurrentHashMap<>();
+
+    public EntityCache(JsonObject config)
+    {
+        this.ttlMs = config.getLong(Constants.ENTITY_CACHE_TTL_MS, Constants.DEFAULT_ENTITY_CACHE_TTL_MS);
+
+        var maxEntries = config.getInteger(Constants.ENTITY_CACHE_MAX_ENTRIES, Constants.DEFAULT_ENTITY_CACHE_MAX_ENTRIES);
+
+        this.entries = new LinkedHashMap<>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+            {
+                return size() > maxEntries;
+            }
+        };
+
+        TableVersions.onRowWrite(this::invalidate);
+    }
+
+    /**
+     * Returns a row from the cache, or reads it through {@link DbQueryHelper#fetchOne} and caches it.
+     *
+     * @param dbHelper The helper used on a miss.
+     * @param table    The table name.
+     * @param id       The row ID.
+     * @return Future with a copy of the row.
+     */
+    public Future<JsonObject> fetchOne(DbQueryHelper dbHelper, String table, Object id)
+    {
+        var key = table + ":" + id;
+
+        var version = TableVersions.current(table);
+
+        var bulkVersion = TableVersions.bulkVersion(table);
+
+        Entry cached;
+
+        synchronized (entries)
+        {
+            cached = entries.get(key);
+
+            if (cached != null && (cached.bulkVersion != bulkVersion || cached.expiresAt <= System.currentTimeMillis()))
+            {
+                entries.remove(key);
+
+                cached = null;
+            }
+        }
+
+        if (cached != null)
+        {
+            record(table, true);
+
+            return Future.succeededFuture(cached.row.copy());
+        }
+
+        record(table, false);
+
+        return dbHelper.fetchOne(table, Constants.FIELD_ID, id)
+                .map(row -> {
+
+                    if (row != null)
+                    {
+                        synchronized (entries)
+                        {
+                            // A write that landed while the row was being read may have made it stale already
+                            if (TableVersions.current(table) == version)
+                            {
+                                entries.put(key, new Entry(row.copy(), bulkVersion, System.currentTimeMillis() + ttlMs));
+                            }
+
+                            Metrics.gauge(METRIC_PREFIX + "size", entries.size());
+                        }
+                    }
+
+                    return row;
+                });
+    }
+
+    /**
+     * Drops the cached copy of a row.
+     *
+     * @param table The table name.
+     * @param id    The row ID.
+     */
+    public void invalidate(String table, Object id)
+    {
+        synchronized (entries)
+        {
+            entries.remove(table + ":" + id);
+        }
+    }
+
+    /**
+     * Counts a lookup and refreshes the table's hit rate gauge (in percent).
+     */
+    private void record(String table, boolean hit)
+    {
+        var counters = hitsAndMisses.computeIfAbsent(table, key -> new LongAdder[]{new LongAdder(), new LongAdder()});
+
+        counters[hit ? 0 : 1].increment();
+
+        Metrics.increment(METRIC_PREFIX + table + (hit ? ".hit" : ".miss"));
+
+        var hits = counters[0].sum();
+
+        Metrics.gauge(METRIC_PREFIX + table + ".hit_rate_pct", hits * 100 / Math.max(1, hits + counters[1].sum()));
+    }
+
+    private record Entry(JsonObject row, long bulkVersion, long expiresAt)
+    {
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.db;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * In-process version counters, one per table, shared by all verticles.
+ * <p>
+ * Every write through {@link DbQueryHelper} bumps the counter of the table it touched; writers that run
+ * raw SQL against a table call {@link #bump(String)} or {@link #bump(String, Collection)} themselves.
+ * Readers take the version before querying, so a version never labels data older than the write it counts.
+ * <p>
+ * A write that names the rows it changed also tells the row listeners about each of them, so per-row
+ * caches only drop those rows. A write whose rows are not known also moves the table's bulk version,
+ * which per-row caches check to drop everything they hold for the table.
+ * <p>
+ * Counters start from zero on every start, so tags carry a per-process epoch to keep a tag issued by a
+ * previous run from matching.
+ * <p>
+ * Writes made by another process never reach these counters, so the application assumes it is the only
+ * process writing to its database; {@link DBConfig} enforces that with an advisory lock at startup.
+ * Changes made by hand in the database are only picked up by the entity cache once its entries expire.
+ */
+public final class TableVersions
+{
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    private static final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    private static final Map<String, AtomicLong> bulkVersions = new ConcurrentHashMap<>();
+
+    private static final List<BiConsumer<String, Object>> rowListeners = new CopyOnWriteArrayList<>();
+
+    private TableVersions()
+    {
+    }
+
+    /**
+     * Returns the current version of a table.
+     *
+     * @param table The table name.
+     * @return The version, 0 if the table has not been written since start.
+     */
+    public static long current(String table)
+    {
+        var version = versions.get(table);
+
+        return version == null ? 0 : version.get();
+    }
+
+    /**
+     * Returns the version of a table counting only the writes whose rows are not known.
+     *
+     * @param table The table name.
+     * @return The bulk version, 0 if there has been no such write since start.
+     */
+    public static long bulkVersion(String table)
+    {
+        var version = bulkVersions.get(table);
+
+        return version == null ? 0 : version.get();
+    }
+
+    /**
+     * Marks a table as changed by a write whose rows are not known.
+     *
+     * @param table The table name.
+     */
+    public static void bump(String table)
+    {
+        versions.computeIfAbsent(table, key -> new AtomicLong()).incrementAndGet();
+
+        bulkVersions.computeIfAbsent(table, key -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Marks a table as changed by a write to the given existing rows. An insert passes no IDs, as no
+     * existing row changed.
+     *
+     * @param table The table name.
+     * @param ids   The IDs of the rows updated or deleted.
+     */
+    public static void bump(String table, Collection<?> ids)
+    {
+        // The table version moves first, so a reader that misses the notification still sees the write
+        versions.computeIfAbsent(table, key -> new AtomicLong()).incrementAndGet();
+
+        for (var id : ids)
+        {
+            for (var listener : rowListeners)
+            {
+                listener.accept(table, id);
+            }
+        }
+    }
+
+    /**
+     * Registers a listener called with the table and ID of every row a write names.
+     *
+     * @param listener The listener.
+     */
+    public static void onRowWrite(BiConsumer<String, Object> listener)
+    {
+        rowListeners.add(listener);
+    }
+
+    /**
+     * Builds an entity tag for a whole table at the given version.
+     *
+     * @param table   The table name.
+     * @param version The table version.
+     * @return The quoted entity tag.
+     */
+    public static String tag(String table, long version)
+    {
+        return "\"" + table + "-" + EPOCH + "-" + version + "\"";
+    }
+
+    /**
+     * Builds an entity tag for one row of a table at the given table version.
+     *
+     * @param table   The table name.
+     * @param id      The row ID.
+     * @param version The table version.
+     * @return The quoted entity tag.
+     */
+    public static String tag(String table, Object id, long version)
+    {
+        return "\"" + table + "-" + id + "-" + EPOCH + "-" + version + "\"";
+    }
+}
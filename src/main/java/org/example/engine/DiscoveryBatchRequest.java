@@ -0,0 +1,19 @@
+package org.example.engine;
+
+import java.util.List;
+
+/**
+ * Discovery request for a group of targets that share the same credentials
+ *
+ * @param credentialIds Credential IDs shared by the group
+ * @param targets       The targets of the group
+ */
+public record DiscoveryBatchRequest(List<Integer> credentialIds, List<DiscoveryTarget> targets)
+{
+    public DiscoveryBatchRequest
+    {
+        credentialIds = List.copyOf(credentialIds);
+
+        targets = List.copyOf(targets);
+    }
+}
@@ -0,0 +1,16 @@
+package org.example.engine;
+
+import java.util.List;
+
+/**
+ * Reply to a {@link DiscoveryBatchRequest}
+ *
+ * @param results One result per target, in request order
+ */
+public record DiscoveryBatchResult(List<DiscoveryResult> results)
+{
+    public DiscoveryBatchResult
+    {
+        results = List.copyOf(results);
+    }
+}
@@ -6,26 +6,114 @@ import io.vertx.core.Promise;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.NetClient;
+import io.vertx.core.net.NetClientOptions;
+import io.vertx.sqlclient.Tuple;
 import org.example.constants.Constants;
 import org.example.db.DbQueryHelper;
+import org.example.utils.CircuitBreakerRegistry;
 import org.example.utils.CredentialProfiles;
+import org.example.utils.IpRange;
+import org.example.utils.Metrics;
 import org.example.utils.ProcessBuilderUtil;
+import org.example.utils.ReachabilityCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
 public class DiscoveryEngine extends AbstractVerticle
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(DiscoveryEngine.class);
 
+    private static final String METRIC_DISCOVERIES_COALESCED = "discovery.coalesced";
+
+    private static final String METRIC_TARGETS_COALESCED = "discovery.targets.coalesced";
+
+    private static final String METRIC_LAST_GOOD_HIT = "discovery.last_good_credential.hit";
+
+    private static final String METRIC_ENGINE_PREFIX = "discovery.engine.";
+
+    private static final String METRIC_IN_FLIGHT = "in_flight";
+
+    private static final String METRIC_QUEUE_DEPTH = "queue_depth";
+
+    private static final String METRIC_QUEUE_WAIT = "queue_wait_ms";
+
+    private static final String METRIC_LATENCY = "latency_ms";
+
+    private static final String METRIC_BUSY = "busy";
+
     private final DbQueryHelper dbHelper;
 
     private final CredentialProfiles credentialProfiles;
 
-    public DiscoveryEngine(DbQueryHelper dbHelper)
+    private final ReachabilityCache reachability;
+
+    // Single-flight maps, shared by every instance since the event bus spreads identical requests across them
+    private static final Map<Integer, Future<DiscoveryResult>> inFlightDiscoveries = new ConcurrentHashMap<>();
+
+    private static final Map<String, Future<String>> inFlightTargets = new ConcurrentHashMap<>();
+
+    private static final AtomicInteger instanceCounter = new AtomicInteger();
+
+    private final int instanceId;
+
+    private final String metricPrefix;
+
+    private final int maxInFlight;
+
+    private final int maxQueued;
+
+    private final ArrayDeque<QueuedRequest> queue = new ArrayDeque<>();
+
+    private int inFlight = 0;
+
+    private final JsonObject sweepConfig;
+
+    private final long maxSweepAddresses;
+
+    private NetClient netClient;
+
+    public DiscoveryEngine(DbQueryHelper dbHelper, ReachabilityCache reachability, JsonObject sweepConfig, JsonObject engineConfig)
     {
+        this.instanceId = instanceCounter.getAndIncrement();
+
+        this.metricPrefix = METRIC_ENGINE_PREFIX + instanceId + ".";
+
+        this.maxInFlight = engineConfig.getInteger(Constants.DISCOVERY_ENGINE_MAX_IN_FLIGHT, Constants.DEFAULT_DISCOVERY_ENGINE_MAX_IN_FLIGHT);
+
+        this.maxQueued = engineConfig.getInteger(Constants.DISCOVERY_ENGINE_MAX_QUEUED, Constants.DEFAULT_DISCOVERY_ENGINE_MAX_QUEUED);
+
         this.dbHelper = dbHelper;
 
         this.credentialProfiles = new CredentialProfiles(dbHelper);
+
+        this.reachability = reachability;
+
+        this.sweepConfig = sweepConfig;
+
+        this.maxSweepAddresses = sweepConfig.getLong(Constants.SWEEP_MAX_ADDRESSES, Constants.DEFAULT_SWEEP_MAX_ADDRESSES);
+    }
+
+    /**
+     * Builds an order-independent key for a credential set, so [2,1] and [1,2] are treated as the same set.
+     * @param credentialIds The credential IDs
+     * @return The key
+     */
+    public static String credentialKey(List<Integer> credentialIds)
+    {
+        return credentialIds.stream().sorted().toList().toString();
     }
 
     @Override
@@ -33,9 +121,22 @@ public class DiscoveryEngine extends AbstractVerticle
     {
         try
         {
-            vertx.eventBus().consumer(Constants.DISCOVERY_ADDRESS, this::handleDiscoveryRequest);
+            netClient = vertx.createNetClient(new NetClientOptions()
+                    .setConnectTimeout(sweepConfig.getInteger(Constants.SWEEP_CONNECT_TIMEOUT_MS, Constants.DEFAULT_SWEEP_CONNECT_TIMEOUT_MS)));
+
+            vertx.eventBus().<DiscoveryRequest>consumer(Constants.DISCOVERY_ADDRESS, message -> {
+
+                // Joining a run that is already in flight costs nothing, so it bypasses the limit
+                if (!joinRunningDiscovery(message))
+                {
+                    admit(message, this::handleDiscoveryRequest);
+                }
+            });
+
+            vertx.eventBus().<DiscoveryBatchRequest>consumer(Constants.DISCOVERY_BATCH_ADDRESS, message -> admit(message, this::handleBatchRequest));
 
-            LOGGER.info("DiscoveryEngine started, listening on {}", Constants.DISCOVERY_ADDRESS);
+            LOGGER.info("DiscoveryEngine {} started, listening on {} with {} in flight and {} queued at most",
+                    instanceId, Constants.DISCOVERY_ADDRESS, maxInFlight, maxQueued);
 
             promise.complete();
         }
@@ -48,160 +149,626 @@ public class DiscoveryEngine extends AbstractVerticle
 
     }
 
+    /**
+     * Runs a request now if this instance has a free slot, queues it if the queue has room, and otherwise
+     * replies busy right away so the sender can retry elsewhere or later instead of waiting for a timeout
+     * @param message The request
+     * @param handler Handles the request and completes once it has been replied to
+     */
+    private <T> void admit(Message<T> message, Function<Message<T>, Future<Void>> handler)
+    {
+        var now = System.currentTimeMillis();
+
+        if (inFlight < maxInFlight)
+        {
+            run(new QueuedRequest(() -> handler.apply(message), now));
+
+            return;
+        }
+
+        if (queue.size() >= maxQueued)
+        {
+            Metrics.increment(metricPrefix + METRIC_BUSY);
+
+            message.fail(Constants.HTTP_SERVICE_UNAVAILABLE, Constants.ENGINE_BUSY);
+
+            return;
+        }
+
+        queue.add(new QueuedRequest(() -> handler.apply(message), now));
+
+        Metrics.gauge(metricPrefix + METRIC_QUEUE_DEPTH, queue.size());
+    }
+
+    /**
+     * Runs one request and starts the next queued one once it completes
+     * @param request The request with its handler and arrival time
+     */
+    private void run(QueuedRequest request)
+    {
+        var startedAt = System.currentTimeMillis();
+
+        inFlight++;
+
+        Metrics.gauge(metricPrefix + METRIC_IN_FLIGHT, inFlight);
+
+        Metrics.record(metricPrefix + METRIC_QUEUE_WAIT, startedAt - request.receivedAt);
+
+        request.work.get()
+                // A shared run may complete on another instance's thread, the counters belong to this one
+                .onComplete(done -> context.runOnContext(v -> {
+
+                    inFlight--;
+
+                    Metrics.gauge(metricPrefix + METRIC_IN_FLIGHT, inFlight);
+
+                    Metrics.record(metricPrefix + METRIC_LATENCY, System.currentTimeMillis() - startedAt);
+
+                    var next = queue.poll();
+
+                    Metrics.gauge(metricPrefix + METRIC_QUEUE_DEPTH, queue.size());
+
+                    if (next != null)
+                    {
+                        run(next);
+                    }
+                }));
+    }
+
+    /**
+     * Replies to a discovery request with the result of a run for the same discovery ID that is already in flight
+     * @param message Message containing the discovery request payload
+     * @return true if the request joined a running discovery
+     */
+    private boolean joinRunningDiscovery(Message<DiscoveryRequest> message)
+    {
+        var discoveryId = message.body().discoveryId();
+
+        var running = discoveryId == null ? null : inFlightDiscoveries.get(discoveryId);
+
+        if (running == null)
+        {
+            return false;
+        }
+
+        Metrics.increment(METRIC_DISCOVERIES_COALESCED);
+
+        LOGGER.info("Discovery id={} is already running, sharing its result", discoveryId);
+
+        replyDiscovery(message, discoveryId, running);
+
+        return true;
+    }
+
     /**
      * Handles incoming discovery requests from the event bus
      * @param message Message containing the discovery request payload
+     * @return Future that completes once the request has been replied to
      */
-    private void handleDiscoveryRequest(Message<JsonObject> message)
+    private Future<Void> handleDiscoveryRequest(Message<DiscoveryRequest> message)
     {
-        var payload = message.body();
+        var request = message.body();
+
+        var discoveryId = request.discoveryId();
+
+        if (discoveryId == null)
+        {
+            return replyDiscovery(message, null, processDiscovery(request));
+        }
+
+        // The same discovery may have started while this request was queued
+        if (joinRunningDiscovery(message))
+        {
+            return Future.succeededFuture();
+        }
+
+        var promise = Promise.<DiscoveryResult>promise();
+
+        var running = inFlightDiscoveries.putIfAbsent(discoveryId, promise.future());
+
+        if (running != null)
+        {
+            Metrics.increment(METRIC_DISCOVERIES_COALESCED);
+
+            return replyDiscovery(message, discoveryId, running);
+        }
+
+        processDiscovery(request)
+                .onComplete(result -> {
+
+                    inFlightDiscoveries.remove(discoveryId);
+
+                    promise.handle(result);
+                });
 
-        var discoveryId = payload.getString(Constants.DISCOVERY_ID);
+        return replyDiscovery(message, discoveryId, promise.future());
+    }
 
-        processDiscovery(payload, discoveryId)
+    /**
+     * Replies to a discovery request once its run completes
+     * @param message The request
+     * @param discoveryId ID of the discovery operation
+     * @param running The run's result
+     * @return Future that completes once the reply has been sent
+     */
+    private Future<Void> replyDiscovery(Message<DiscoveryRequest> message, Integer discoveryId, Future<DiscoveryResult> running)
+    {
+        return running
                 .onSuccess(discoveryResult -> {
 
-                    LOGGER.info("Discovery process completed for id={}: {}", discoveryId, discoveryResult.encode());
+                    LOGGER.info("Discovery process completed for id={}: {}", discoveryId, discoveryResult);
 
                     message.reply(discoveryResult);
                 })
                 .onFailure(err -> {
-                    var result = new JsonObject().put(Constants.STATUS, Constants.FAIL);
-
-                    message.reply(result);
+                    message.reply(DiscoveryResult.failed(discoveryId, err.getMessage()));
 
                     LOGGER.error("Discovery failed for id={}: {}", discoveryId, err.getMessage());
-                });
+                })
+                .<Void>mapEmpty()
+                .otherwiseEmpty();
+    }
+
+    /**
+     * Handles grouped discovery requests from the event bus. All targets of a group share the
+     * same credential IDs and are sent to the plugin in a single invocation.
+     * @param message Message containing the credential IDs and the targets of the group
+     * @return Future that completes once the request has been replied to
+     */
+    private Future<Void> handleBatchRequest(Message<DiscoveryBatchRequest> message)
+    {
+        var request = message.body();
+
+        var targets = request.targets();
+
+        return processDiscoveryGroup(request.credentialIds(), targets)
+                .onSuccess(results -> {
+
+                    LOGGER.info("Grouped discovery completed for {} targets", targets.size());
+
+                    message.reply(new DiscoveryBatchResult(results.stream().map(DiscoveryResult::ofTarget).toList()));
+                })
+                .onFailure(err -> {
+
+                    LOGGER.error("Grouped discovery failed for {} targets: {}", targets.size(), err.getMessage());
+
+                    message.fail(Constants.HTTP_INTERNAL_SERVER_ERROR, err.getMessage());
+                })
+                .<Void>mapEmpty()
+                .otherwiseEmpty();
     }
 
     /**
      * Processes a discovery request asynchronously
-     * @param payload Request payload with discovery parameters
-     * @param discoveryId ID of the discovery operation
-     * @return Future with the discovery result containing only status
+     * @param request The discovery request
+     * @return Future with the discovery result
      */
-    private Future<JsonObject> processDiscovery(JsonObject payload, String discoveryId)
+    private Future<DiscoveryResult> processDiscovery(DiscoveryRequest request)
     {
-        var result = new JsonObject();
+        try
+        {
+            if (request.isSweep())
+            {
+                return processSweep(request);
+            }
 
-        var ip = payload.getString(Constants.IP);
+            return processDiscoveryGroup(request.credentialIds(), List.of(request.target()))
+                    .map(results -> DiscoveryResult.ofTarget(results.get(0)));
+        }
+        catch (Exception exception)
+        {
+            LOGGER.error("Unexpected error during discovery process for id={}: {}", request.discoveryId(), exception.getMessage(), exception);
 
-        var port = payload.getInteger(Constants.PORT, 22);
+            return Future.succeededFuture(DiscoveryResult.failed(request.discoveryId(), exception.getMessage()));
+        }
+    }
 
-        var credentialIds = payload.getJsonArray(Constants.CREDENTIAL_IDS);
+    /**
+     * Discovers a group of targets that share the same credentials: checks every target's availability,
+     * runs one plugin invocation for the reachable ones and updates each discovery's status.
+     * A target that is already being discovered with the same credential set shares that run's result.
+     * @param credentialIds Credential IDs shared by the group
+     * @param targets The targets of the group
+     * @return Future with one result per target, in the same order, each carrying its status
+     */
+    private Future<List<JsonObject>> processDiscoveryGroup(List<Integer> credentialIds, List<DiscoveryTarget> targets)
+    {
+        var results = new ArrayList<JsonObject>(targets.size());
+
+        for (var target : targets)
+        {
+            results.add(target.toJson().put(Constants.STATUS, Constants.FAIL));
+        }
+
+        var credentialKey = credentialKey(credentialIds);
 
-        // Fetch credential profiles
+        var owned = new ArrayList<JsonObject>();
+
+        var ownedPromises = new HashMap<String, Promise<String>>();
+
+        var shared = new ArrayList<Future<String>>();
+
+        // Targets already being discovered with the same credentials wait for that run instead of probing again
+        for (var target : results)
+        {
+            var key = CircuitBreakerRegistry.key(target.getString(Constants.IP), target.getInteger(Constants.PORT, 22)) + "|" + credentialKey;
+
+            var promise = Promise.<String>promise();
+
+            var running = inFlightTargets.putIfAbsent(key, promise.future());
+
+            if (running != null)
+            {
+                Metrics.increment(METRIC_TARGETS_COALESCED);
+
+                shared.add(running.onSuccess(status -> target.put(Constants.STATUS, status)));
+
+                continue;
+            }
+
+            ownedPromises.put(key, promise);
+
+            owned.add(target);
+        }
+
+        return discoverTargets(credentialIds, owned)
+                .onComplete(done -> {
+
+                    for (var target : owned)
+                    {
+                        var key = CircuitBreakerRegistry.key(target.getString(Constants.IP), target.getInteger(Constants.PORT, 22)) + "|" + credentialKey;
+
+                        var promise = ownedPromises.get(key);
+
+                        inFlightTargets.remove(key, promise.future());
+
+                        promise.tryComplete(target.getString(Constants.STATUS));
+                    }
+                })
+                .transform(done -> Future.join(shared))
+                .transform(done -> updateDiscoveryStatuses(results));
+    }
+
+    /**
+     * Checks the availability of each target and runs one plugin invocation for the reachable ones.
+     * @param credentialIds Credential IDs shared by the targets
+     * @param targets The targets, each with ip and port; their status is updated in place
+     * @return Future that completes once every target has its final status
+     */
+    private Future<Void> discoverTargets(List<Integer> credentialIds, List<JsonObject> targets)
+    {
+        if (targets.isEmpty())
+        {
+            return Future.succeededFuture();
+        }
 
         try
         {
-            return credentialProfiles.fetchCredentialProfiles(credentialIds)
+            // Fetch credential profiles
+            return credentialProfiles.fetchCredentialProfiles(new JsonArray(credentialIds))
                     .compose(profiles -> {
 
                         if (profiles.isEmpty())
                         {
-                            result.put(Constants.STATUS, Constants.FAIL);
-
-                            return Future.succeededFuture(result);
+                            return Future.succeededFuture();
                         }
 
-                        // Format data according to Go plugin expectations
-                        var goPluginInput = createGoPluginInput(ip, port, profiles);
+                        var checks = new ArrayList<Future<Boolean>>(targets.size());
+
+                        for (var target : targets)
+                        {
+                            checks.add(reachability.check(vertx, target.getString(Constants.IP), target.getInteger(Constants.PORT, 22)));
+                        }
 
-                        var checkObject = new JsonObject()
-                                .put(Constants.IP, ip)
-                                .put(Constants.PORT, port);
+                        return Future.join(checks)
+                                .transform(ignored -> {
 
-                        return ProcessBuilderUtil.checkAvailability(vertx, checkObject)
-                                .compose(isAvailable -> {
+                                    var reachable = new ArrayList<JsonObject>();
 
-                                    if (!isAvailable)
+                                    for (var i = 0; i < checks.size(); i++)
                                     {
-                                        result.put(Constants.STATUS, Constants.FAIL);
-
-                                        return Future.succeededFuture(result);
+                                        if (checks.get(i).succeeded() && Boolean.TRUE.equals(checks.get(i).result()))
+                                        {
+                                            reachable.add(targets.get(i));
+                                        }
                                     }
 
-                                    // Spawn plugin engine with correctly formatted input
-                                    var pluginInput = new JsonArray().add(goPluginInput);
+                                    return runPluginStage(reachable, profiles);
+                                });
+                    });
+        }
+        catch (Exception exception)
+        {
+            LOGGER.error("Unexpected error during discovery process for {} targets: {}", targets.size(), exception.getMessage(), exception);
 
-                                    LOGGER.info("Plugin input: {}", pluginInput.encode());
+            return Future.succeededFuture();
+        }
+    }
 
-                                    return ProcessBuilderUtil.spawnPluginEngine(vertx, pluginInput)
-                                            .compose(resultArray -> {
-                                                if (resultArray == null || resultArray.isEmpty())
-                                                {
-                                                    result.put(Constants.STATUS, Constants.FAIL);
+    /**
+     * Sweeps an IP range over the candidate ports. Responsive hosts go through the plugin stage in groups,
+     * the hosts that authenticate are stored in {@code discovery_results}, and the discovery is marked up
+     * when at least one host was found.
+     * @param request The sweep request with ip_range, ports or port, and credential IDs
+     * @return Future with the status and the scanned, responsive and discovered counts
+     */
+    private Future<DiscoveryResult> processSweep(DiscoveryRequest request)
+    {
+        var discoveryId = request.discoveryId();
 
-                                                    return Future.succeededFuture(result);
-                                                }
+        var failed = new DiscoveryResult(discoveryId, null, null, request.ipRange(), Constants.FAIL, null, null, null, null);
 
-                                                // For discovery, extract the status from the first result object
-                                                var firstResult = resultArray.getJsonObject(0);
+        IpRange range;
 
-                                                if (firstResult != null && Constants.SUCCESS.equalsIgnoreCase(firstResult.getString(Constants.STATUS, "")))
-                                                {
-                                                    result.put(Constants.STATUS, Constants.SUCCESS);
-                                                }
-                                                else
-                                                {
-                                                    result.put(Constants.STATUS, Constants.FAIL);
-                                                }
+        var ports = request.ports().isEmpty() ? List.of(request.port()) : request.ports();
 
-                                                return Future.succeededFuture(result);
-                                            });
-                                })
-                                .compose(res -> {
-                                    var finalStatus = res.getString(Constants.STATUS).equals(Constants.SUCCESS) ? Constants.UP : Constants.DOWN;
+        try
+        {
+            range = IpRange.parse(request.ipRange());
+        }
+        catch (Exception exception)
+        {
+            LOGGER.error("Invalid sweep target for discovery id={}: {}", discoveryId, exception.getMessage());
 
-                                    var updateFields = new JsonObject().put(Constants.STATUS, finalStatus);
+            return Future.succeededFuture(failed.failedWith(exception.getMessage()));
+        }
 
-                                    var id = Integer.parseInt(discoveryId);
+        if (range.size() > maxSweepAddresses)
+        {
+            return Future.succeededFuture(failed.failedWith("IP range exceeds " + maxSweepAddresses + " addresses"));
+        }
 
-                                    // Update database with discovery status
-                                    return dbHelper.update(Constants.DISCOVERY_TABLE, Constants.FIELD_ID, id, updateFields)
-                                            .map(updateResult -> {
+        LOGGER.info("Sweeping {} addresses on ports {} for discovery id={}", range.size(), ports, discoveryId);
 
-                                                LOGGER.info("Discovery status updated successfully for id={}", discoveryId);
+        return credentialProfiles.fetchCredentialProfiles(new JsonArray(request.credentialIds()))
+                .compose(profiles -> {
 
-                                                return res;
-                                            })
-                                            .otherwise(err -> {
+                    if (profiles.isEmpty())
+                    {
+                        return Future.succeededFuture(failed);
+                    }
 
-                                                LOGGER.error("Failed to update discovery status for id={}: {}", discoveryId, err.getMessage());
+                    return dbHelper.execute(Constants.SQL_DELETE_DISCOVERY_RESULTS, Tuple.of(discoveryId))
+                            .compose(cleared -> new RangeSweep(vertx, netClient, range, ports, sweepConfig,
+                                    group -> runPluginStage(group, profiles)
+                                            .compose(v -> storeSweepResults(discoveryId, group)))
+                                    .run())
+                            .compose(summary -> {
 
-                                                return res;
-                                            });
-                                });
-                    });
+                                var found = summary.getJsonArray(Constants.DISCOVERED).size();
+
+                                var status = found > 0 ? Constants.UP : Constants.DOWN;
+
+                                return dbHelper.update(Constants.DISCOVERY_TABLE, Constants.FIELD_ID, discoveryId, new JsonObject().put(Constants.STATUS, status))
+                                        .otherwise(err -> {
+
+                                            LOGGER.error("Failed to update discovery status for id={}: {}", discoveryId, err.getMessage());
+
+                                            return null;
+                                        })
+                                        .map(v -> new DiscoveryResult(discoveryId, null, null, request.ipRange(),
+                                                found > 0 ? Constants.SUCCESS : Constants.FAIL,
+                                                summary.getLong(Constants.SCANNED), summary.getLong(Constants.RESPONSIVE), found, null));
+                            });
+                });
+    }
+
+    /**
+     * Stores the hosts of a sweep group that passed the plugin stage
+     * @param discoveryId ID of the discovery operation
+     * @param group The group's targets with their status
+     * @return Future with the successful targets
+     */
+    private Future<List<JsonObject>> storeSweepResults(Integer discoveryId, List<JsonObject> group)
+    {
+        var successful = group.stream()
+                .filter(target -> Constants.SUCCESS.equals(target.getString(Constants.STATUS)))
+                .toList();
+
+        var batch = successful.stream()
+                .map(target -> Tuple.of(discoveryId, target.getString(Constants.IP), target.getInteger(Constants.PORT), Constants.UP))
+                .toList();
+
+        return dbHelper.executeBatch(Constants.SQL_UPSERT_DISCOVERY_RESULT, batch)
+                .map(successful);
+    }
+
+    /**
+     * Runs the plugin for reachable targets that share the same credential profiles and marks every target
+     * the plugin reports as successful. Targets with a remembered working credential are tried with that
+     * credential alone first; the rest, and those where it no longer works, get the full list.
+     * @param targets The reachable targets, each with ip, port and optionally last_good_credential_id;
+     *                their status and last_good_credential_id are updated in place
+     * @param profiles The credential profiles
+     * @return Future that completes when the plugin results have been applied
+     */
+    private Future<Void> runPluginStage(List<JsonObject> targets, JsonArray profiles)
+    {
+        if (targets.isEmpty())
+        {
+            return Future.succeededFuture();
         }
-        catch (Exception exception)
+
+        var preferredTargets = new ArrayList<JsonObject>();
+
+        var preferredProfiles = new ArrayList<JsonArray>();
+
+        for (var target : targets)
         {
-            LOGGER.error("Unexpected error during discovery process for id={}: {}", discoveryId, exception.getMessage(), exception);
+            target.put(Constants.STATUS, Constants.FAIL);
+
+            var preferred = credentialProfiles.preferredCredentials(profiles, target.getInteger(Constants.LAST_GOOD_CREDENTIAL_ID));
 
-            result.put(Constants.STATUS, Constants.FAIL);
+            if (preferred != null)
+            {
+                preferredTargets.add(target);
 
-            return Future.succeededFuture(result);
+                preferredProfiles.add(preferred);
+            }
         }
+
+        return invokePlugin(preferredTargets, preferredProfiles)
+                .compose(v -> {
+
+                    var fallback = new ArrayList<JsonObject>();
+
+                    for (var target : targets)
+                    {
+                        if (!Constants.SUCCESS.equals(target.getString(Constants.STATUS)))
+                        {
+                            fallback.add(target);
+                        }
+                    }
+
+                    Metrics.add(METRIC_LAST_GOOD_HIT, preferredTargets.size() - preferredTargets.stream().filter(fallback::contains).count());
+
+                    return invokePlugin(fallback, Collections.nCopies(fallback.size(), profiles));
+                });
+    }
+
+    /**
+     * Runs one plugin invocation with one context per target
+     * @param targets The targets, in context order
+     * @param profilesPerTarget The credential profiles to send for each target
+     * @return Future that completes when the plugin results have been applied; plugin errors leave the targets failed
+     */
+    private Future<Void> invokePlugin(List<JsonObject> targets, List<JsonArray> profilesPerTarget)
+    {
+        if (targets.isEmpty())
+        {
+            return Future.succeededFuture();
+        }
+
+        // Spawn plugin engine with correctly formatted input
+        var pluginInput = new JsonArray().add(createGoPluginInput(targets, profilesPerTarget));
+
+        LOGGER.info("Plugin input for {} targets", targets.size());
+
+        return ProcessBuilderUtil.spawnPluginEngine(vertx, pluginInput)
+                .map(resultArray -> {
+
+                    applyPluginResults(targets, profilesPerTarget, resultArray);
+
+                    return (Void) null;
+                })
+                .otherwiseEmpty();
+    }
+
+    /**
+     * Marks targets whose plugin result reports success and records which credential worked, when it can
+     * be told. Results are matched on ip and port when the plugin echoes them, otherwise by position,
+     * since the plugin answers contexts in order.
+     * @param targets The targets sent to the plugin, in context order
+     * @param profilesPerTarget The credential profiles sent for each target
+     * @param resultArray The plugin results
+     */
+    private void applyPluginResults(List<JsonObject> targets, List<JsonArray> profilesPerTarget, JsonArray resultArray)
+    {
+        if (resultArray == null)
+        {
+            return;
+        }
+
+        for (var i = 0; i < resultArray.size(); i++)
+        {
+            var pluginResult = resultArray.getJsonObject(i);
+
+            if (pluginResult == null || !Constants.SUCCESS.equalsIgnoreCase(pluginResult.getString(Constants.STATUS, "")))
+            {
+                continue;
+            }
+
+            var resultIp = pluginResult.getString(Constants.IP);
+
+            var index = -1;
+
+            if (resultIp != null)
+            {
+                for (var j = 0; j < targets.size(); j++)
+                {
+                    var candidate = targets.get(j);
+
+                    if (resultIp.equals(candidate.getString(Constants.IP))
+                            && pluginResult.getInteger(Constants.PORT, candidate.getInteger(Constants.PORT)).equals(candidate.getInteger(Constants.PORT)))
+                    {
+                        index = j;
+
+                        break;
+                    }
+                }
+            }
+            else if (i < targets.size())
+            {
+                index = i;
+            }
+
+            if (index >= 0)
+            {
+                targets.get(index)
+                        .put(Constants.STATUS, Constants.SUCCESS)
+                        .put(Constants.LAST_GOOD_CREDENTIAL_ID, credentialProfiles.successfulCredentialId(profilesPerTarget.get(index), pluginResult));
+            }
+        }
+    }
+
+    /**
+     * Stores the up/down status of every discovered target. Update failures are logged and do not fail the run.
+     * @param results Results with discovery_id and status
+     * @return Future with the same results
+     */
+    private Future<List<JsonObject>> updateDiscoveryStatuses(List<JsonObject> results)
+    {
+        var updates = new ArrayList<Future<Void>>(results.size());
+
+        for (var result : results)
+        {
+            var discoveryId = result.getInteger(Constants.DISCOVERY_ID);
+
+            var finalStatus = Constants.SUCCESS.equals(result.getString(Constants.STATUS)) ? Constants.UP : Constants.DOWN;
+
+            var updateFields = new JsonObject().put(Constants.STATUS, finalStatus);
+
+            // A success stores the credential that worked, or clears it when the plugin could not say which
+            if (Constants.SUCCESS.equals(result.getString(Constants.STATUS)))
+            {
+                updateFields.put(Constants.LAST_GOOD_CREDENTIAL_ID, result.getInteger(Constants.LAST_GOOD_CREDENTIAL_ID));
+            }
+
+            // Update database with discovery status
+            updates.add(dbHelper.update(Constants.DISCOVERY_TABLE, Constants.FIELD_ID, discoveryId, updateFields)
+                    .onSuccess(updateResult -> LOGGER.info("Discovery status updated successfully for id={}", discoveryId))
+                    .onFailure(err -> LOGGER.error("Failed to update discovery status for id={}: {}", discoveryId, err.getMessage())));
+        }
+
+        return Future.join(updates)
+                .transform(ignored -> Future.succeededFuture(results));
     }
 
     /**
      * Creates input in the format expected by Go plugin
-     * @param ip The IP address
-     * @param port The port number
-     * @param credentialProfiles The credential profiles
+     * @param targets The targets, each with ip and port
+     * @param profilesPerTarget The credential profiles to send for each target
      * @return Formatted JsonObject for Go plugin
      */
-    private JsonObject createGoPluginInput(String ip, Integer port, JsonArray credentialProfiles)
+    private JsonObject createGoPluginInput(List<JsonObject> targets, List<JsonArray> profilesPerTarget)
     {
-        var formattedCredentials = this.credentialProfiles.formatCredentials(credentialProfiles);
+        // Create array of contexts
+        var contextsArray = new JsonArray();
 
-        var context = new JsonObject()
-                .put(Constants.IP, ip)
-                .put(Constants.PORT, port)
-                .put(Constants.CREDENTIALS, formattedCredentials);
+        var formatted = new IdentityHashMap<JsonArray, JsonArray>();
 
-        // Create array of contexts
-        var contextsArray = new JsonArray().add(context);
+        for (var i = 0; i < targets.size(); i++)
+        {
+            var target = targets.get(i);
+
+            // Targets sharing the same profile list share one formatted copy
+            var formattedCredentials = formatted.computeIfAbsent(profilesPerTarget.get(i), credentialProfiles::formatCredentials);
+
+            contextsArray.add(new JsonObject()
+                    .put(Constants.IP, target.getString(Constants.IP))
+                    .put(Constants.PORT, target.getInteger(Constants.PORT))
+                    .put(Constants.CREDENTIALS, formattedCredentials));
+        }
 
         return new JsonObject()
                 .put(Constants.REQUEST_TYPE, Constants.DISCOVERY)
@@ -209,4 +776,7 @@ public class DiscoveryEngine extends AbstractVerticle
 
     }
 
-}
\ No newline at end of file
+    private record QueuedRequest(Supplier<Future<Void>> work, long receivedAt)
+    {
+    }
+}
@@ -0,0 +1,302 @@
+package org.example.engine;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.Tuple;
+import org.example.constants.Constants;
+import org.example.db.DbQueryHelper;
+import org.example.utils.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drains the persistent {@code discovery_jobs} queue with a bounded number of concurrent jobs.
+ * <p>
+ * Jobs are claimed with {@code FOR UPDATE SKIP LOCKED}, handed to the {@link DiscoveryEngine} over the
+ * event bus and their outcome is written back to the job row. The worker wakes up when a job is enqueued
+ * and also sweeps the queue periodically, so jobs left behind by a crash or a missed notification still run.
+ * Finished jobs are kept for {@code retentionMs} so their outcome can be read, then deleted.
+ */
+public class DiscoveryJobWorker extends AbstractVerticle
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiscoveryJobWorker.class);
+
+    private static final String METRIC_ACTIVE_JOBS = "discovery.jobs.active";
+
+    private static final String METRIC_COMPLETED_JOBS = "discovery.jobs.completed";
+
+    private static final String METRIC_FAILED_JOBS = "discovery.jobs.failed";
+
+    private static final String METRIC_JOB_DURATION = "discovery.jobs.duration_ms";
+
+    private static final String METRIC_BUSY_JOBS = "discovery.jobs.requeued_busy";
+
+    private final DbQueryHelper dbHelper;
+
+    private final int concurrency;
+
+    private final long sweepMs;
+
+    private final long requestTimeoutMs;
+
+    private final long sweepTimeoutMs;
+
+    private final long busyBackoffMs;
+
+    private final long leaseMs;
+
+    private final long retentionMs;
+
+    private long pausedUntil = 0;
+
+    private int activeJobs = 0;
+
+    private boolean claiming = false;
+
+    private boolean drainRequested = false;
+
+    public DiscoveryJobWorker(DbQueryHelper dbHelper, JsonObject jobsConfig)
+    {
+        this.dbHelper = dbHelper;
+
+        this.concurrency = jobsConfig.getInteger(Constants.DISCOVERY_JOBS_CONCURRENCY, Constants.DEFAULT_DISCOVERY_JOBS_CONCURRENCY);
+
+        this.sweepMs = jobsConfig.getLong(Constants.DISCOVERY_JOBS_SWEEP_MS, Constants.DEFAULT_DISCOVERY_JOBS_SWEEP_MS);
+
+        this.requestTimeoutMs = jobsConfig.getLong(Constants.DISCOVERY_JOBS_TIMEOUT_MS, Constants.DEFAULT_DISCOVERY_JOBS_TIMEOUT_MS);
+
+        this.sweepTimeoutMs = jobsConfig.getLong(Constants.DISCOVERY_JOBS_SWEEP_TIMEOUT_MS, Constants.DEFAULT_DISCOVERY_JOBS_SWEEP_TIMEOUT_MS);
+
+        this.busyBackoffMs = jobsConfig.getLong(Constants.DISCOVERY_JOBS_BUSY_BACKOFF_MS, Constants.DEFAULT_DISCOVERY_JOBS_BUSY_BACKOFF_MS);
+
+        // A live worker finishes or fails every job within its timeout, so a job running longer than that has been abandoned
+        this.leaseMs = Math.max(requestTimeoutMs, sweepTimeoutMs) + sweepMs;
+
+        this.retentionMs = jobsConfig.getLong(Constants.DISCOVERY_JOBS_RETENTION_MS, Constants.DEFAULT_DISCOVERY_JOBS_RETENTION_MS);
+    }
+
+    @Override
+    public void start(Promise<Void> promise)
+    {
+        try
+        {
+            requeueAbandonedJobs()
+                    .onComplete(result -> {
+
+                        vertx.eventBus().<Long>consumer(Constants.DISCOVERY_JOBS_ADDRESS, message -> drain());
+
+                        vertx.setPeriodic(sweepMs, id -> drain());
+
+                        // Jobs cut off by a restart are picked up once their lease runs out, without another restart
+                        vertx.setPeriodic(Math.min(leaseMs, Constants.DISCOVERY_JOBS_LEASE_CHECK_MS), id -> requeueAbandonedJobs()
+                                .compose(v -> pruneFinishedJobs())
+                                .onComplete(done -> drain()));
+
+                        LOGGER.info("DiscoveryJobWorker started with concurrency {}", concurrency);
+
+                        drain();
+
+                        promise.complete();
+                    });
+        }
+        catch (Exception exception)
+        {
+            LOGGER.error("Failed to start DiscoveryJobWorker: {}", exception.getMessage(), exception);
+
+            promise.fail("Failed to start DiscoveryJobWorker: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Queues again the jobs whose lease ran out, i.e. that a previous run of the process left running.
+     * Jobs within their lease are left alone, as this process may still be running them; only one process
+     * runs against the database at a time (see {@link org.example.db.DBConfig}).
+     *
+     * @return Future that completes when the jobs are queued; failures are only logged
+     */
+    private Future<Void> requeueAbandonedJobs()
+    {
+        return dbHelper.execute(Constants.SQL_REQUEUE_DISCOVERY_JOBS, Tuple.of(leaseMs))
+                .onSuccess(rows -> {
+                    if (rows.rowCount() > 0)
+                    {
+                        LOGGER.info("Re-queued {} abandoned discovery jobs", rows.rowCount());
+                    }
+                })
+                .onFailure(err -> LOGGER.error("Failed to re-queue abandoned discovery jobs: {}", err.getMessage()))
+                .<Void>mapEmpty()
+                .otherwiseEmpty();
+    }
+
+    /**
+     * Deletes finished jobs older than the retention period, so the table only grows with the queue.
+     *
+     * @return Future that completes when the jobs are deleted; failures are only logged
+     */
+    private Future<Void> pruneFinishedJobs()
+    {
+        return dbHelper.execute(Constants.SQL_DELETE_FINISHED_DISCOVERY_JOBS, Tuple.of(retentionMs))
+                .onSuccess(rows -> {
+                    if (rows.rowCount() > 0)
+                    {
+                        LOGGER.info("Deleted {} finished discovery jobs", rows.rowCount());
+                    }
+                })
+                .onFailure(err -> LOGGER.error("Failed to delete finished discovery jobs: {}", err.getMessage()))
+                .<Void>mapEmpty()
+                .otherwiseEmpty();
+    }
+
+    /**
+     * Claims as many queued jobs as there are free slots and starts them.
+     * Only one claim query runs at a time; a wake-up that arrives meanwhile triggers another claim afterwards.
+     */
+    private void drain()
+    {
+        var freeSlots = concurrency - activeJobs;
+
+        // Every engine instance was busy a moment ago, give them time before claiming more
+        if (freeSlots <= 0 || System.currentTimeMillis() < pausedUntil)
+        {
+            return;
+        }
+
+        if (claiming)
+        {
+            drainRequested = true;
+
+            return;
+        }
+
+        claiming = true;
+
+        drainRequested = false;
+
+        dbHelper.execute(Constants.SQL_CLAIM_DISCOVERY_JOBS, Tuple.of(freeSlots))
+                .onComplete(result -> {
+
+                    claiming = false;
+
+                    if (result.failed())
+                    {
+                        LOGGER.error("Failed to claim discovery jobs: {}", result.cause().getMessage());
+
+                        return;
+                    }
+
+                    var claimed = result.result().rowCount();
+
+                    for (var row : result.result())
+                    {
+                        runJob(row);
+                    }
+
+                    // A full claim may mean more jobs are waiting
+                    if (drainRequested || claimed == freeSlots)
+                    {
+                        drain();
+                    }
+                });
+    }
+
+    /**
+     * Runs one claimed job through the DiscoveryEngine and records its outcome
+     *
+     * @param job The claimed job row with its id and discovery_id
+     */
+    private void runJob(Row job)
+    {
+        var jobId = job.getLong(Constants.FIELD_ID);
+
+        var discoveryId = job.getInteger(Constants.DISCOVERY_ID);
+
+        var startedAt = System.currentTimeMillis();
+
+        activeJobs++;
+
+        Metrics.gauge(METRIC_ACTIVE_JOBS, activeJobs);
+
+        LOGGER.info("Running discovery job {} for discovery id={}", jobId, discoveryId);
+
+        buildPayload(discoveryId)
+                .compose(payload -> vertx.eventBus()
+                        .<DiscoveryResult>request(Constants.DISCOVERY_ADDRESS, payload, new DeliveryOptions()
+                                .setSendTimeout(payload.isSweep() ? sweepTimeoutMs : requestTimeoutMs))
+                        .map(Message::body))
+                .compose(result -> dbHelper.execute(Constants.SQL_FINISH_DISCOVERY_JOB,
+                                Tuple.of(Constants.JOB_COMPLETED, result.toJson(), null, jobId))
+                        .onSuccess(rows -> Metrics.increment(METRIC_COMPLETED_JOBS)))
+                .recover(err -> {
+
+                    if (err instanceof ReplyException reply && reply.failureCode() == Constants.HTTP_SERVICE_UNAVAILABLE)
+                    {
+                        LOGGER.info("DiscoveryEngine busy, re-queuing discovery job {}", jobId);
+
+                        Metrics.increment(METRIC_BUSY_JOBS);
+
+                        pausedUntil = System.currentTimeMillis() + busyBackoffMs;
+
+                        vertx.setTimer(busyBackoffMs, id -> drain());
+
+                        return dbHelper.execute(Constants.SQL_REQUEUE_DISCOVERY_JOB, Tuple.of(jobId));
+                    }
+
+                    LOGGER.error("Discovery job {} failed: {}", jobId, err.getMessage());
+
+                    Metrics.increment(METRIC_FAILED_JOBS);
+
+                    return dbHelper.execute(Constants.SQL_FINISH_DISCOVERY_JOB,
+                            Tuple.of(Constants.JOB_FAILED, null, err.getMessage(), jobId));
+                })
+                .onComplete(result -> {
+
+                    if (result.failed())
+                    {
+                        LOGGER.error("Failed to record outcome of discovery job {}: {}", jobId, result.cause().getMessage());
+                    }
+
+                    activeJobs--;
+
+                    Metrics.gauge(METRIC_ACTIVE_JOBS, activeJobs);
+
+                    Metrics.record(METRIC_JOB_DURATION, System.currentTimeMillis() - startedAt);
+
+                    drain();
+                });
+    }
+
+    /**
+     * Loads the discovery profile and builds the DiscoveryEngine request
+     *
+     * @param discoveryId The ID of the discovery profile
+     * @return Future with the request; fails with "Discovery not found" if the profile was deleted
+     */
+    private Future<DiscoveryRequest> buildPayload(Integer discoveryId)
+    {
+        return dbHelper.execute(String.format(Constants.SQL_SELECT_ONE, Constants.DISCOVERY_TABLE, Constants.FIELD_ID), Tuple.of(discoveryId))
+                .compose(rows -> {
+
+                    if (rows.rowCount() == 0)
+                    {
+                        return Future.failedFuture("Discovery not found");
+                    }
+
+                    try
+                    {
+                        return Future.succeededFuture(DiscoveryRequest.fromDiscovery(rows.iterator().next().toJson()));
+                    }
+                    catch (Exception exception)
+                    {
+                        LOGGER.error("Failed to build payload for discovery id={}: {}", discoveryId, exception.getMessage());
+
+                        return Future.failedFuture("Invalid discovery profile: " + exception.getMessage());
+                    }
+                });
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.engine;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.example.constants.Constants;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Request to run one discovery profile, either a single target or a range sweep
+ *
+ * @param discoveryId          ID of the discovery profile
+ * @param ip                   The target IP address, for single targets
+ * @param port                 The target port, for single targets
+ * @param credentialIds        Credential IDs to try
+ * @param lastGoodCredentialId The credential that worked last time, or null
+ * @param ipRange              The range to sweep, or null
+ * @param ports                Candidate ports of the sweep, empty to use {@code port}
+ */
+public record DiscoveryRequest(Integer discoveryId, String ip, int port, List<Integer> credentialIds,
+                               Integer lastGoodCredentialId, String ipRange, List<Integer> ports)
+{
+    public DiscoveryRequest
+    {
+        credentialIds = List.copyOf(credentialIds);
+
+        ports = List.copyOf(ports);
+    }
+
+    /**
+     * Builds the request from a discovery row.
+     * JSONB columns may come back either as encoded strings or as arrays, both are accepted.
+     *
+     * @param discovery The discovery row
+     * @return The request
+     * @throws IllegalArgumentException if credential_ids or ports cannot be parsed
+     */
+    public static DiscoveryRequest fromDiscovery(JsonObject discovery)
+    {
+        var ipRange = discovery.getString(Constants.IP_RANGE);
+
+        var sweep = ipRange != null && !ipRange.isBlank();
+
+        return new DiscoveryRequest(
+                discovery.getInteger(Constants.FIELD_ID),
+                discovery.getString(Constants.IP),
+                discovery.getInteger(Constants.PORT, 22),
+                toIntegers(discovery.getValue(Constants.CREDENTIAL_IDS)),
+                discovery.getInteger(Constants.LAST_GOOD_CREDENTIAL_ID),
+                sweep ? ipRange : null,
+                sweep ? toIntegers(discovery.getValue(Constants.PORTS)) : List.of());
+    }
+
+    public boolean isSweep()
+    {
+        return ipRange != null;
+    }
+
+    /**
+     * Returns the single target of a non-sweep request
+     *
+     * @return The target
+     */
+    public DiscoveryTarget target()
+    {
+        return new DiscoveryTarget(discoveryId, ip, port, lastGoodCredentialId);
+    }
+
+    private static List<Integer> toIntegers(Object value)
+    {
+        if (value == null)
+        {
+            return List.of();
+        }
+
+        JsonArray array;
+
+        try
+        {
+            array = value instanceof JsonArray json ? json : new JsonArray(value.toString());
+        }
+        catch (Exception exception)
+        {
+            throw new IllegalArgumentException("Invalid JSON array: " + value);
+        }
+
+        var integers = new ArrayList<Integer>(array.size());
+
+        for (var element : array)
+        {
+            if (!(element instanceof Number number))
+            {
+                throw new IllegalArgumentException("Invalid integer in " + value + ": " + element);
+            }
+
+            integers.add(number.intValue());
+        }
+
+        return integers;
+    }
+}
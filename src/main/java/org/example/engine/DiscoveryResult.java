@@ -0,0 +1,84 @@
+package org.example.engine;
+
+import io.vertx.core.json.JsonObject;
+import org.example.constants.Constants;
+
+/**
+ * Outcome of discovering one target or sweeping one range. Fields that do not apply are null.
+ *
+ * @param discoveryId ID of the discovery profile
+ * @param ip          The target IP address, for single targets
+ * @param port        The target port, for single targets
+ * @param ipRange     The swept range, for sweeps
+ * @param status      success or fail
+ * @param scanned     Number of probed (address, port) candidates, for sweeps
+ * @param responsive  Number of candidates that accepted a connection, for sweeps
+ * @param discovered  Number of hosts that passed the plugin stage, for sweeps
+ * @param error       Why the discovery failed, if known
+ */
+public record DiscoveryResult(Integer discoveryId, String ip, Integer port, String ipRange, String status,
+                              Long scanned, Long responsive, Integer discovered, String error)
+{
+    /**
+     * Builds the result of a single target
+     *
+     * @param target The discovered target with discovery_id, ip, port and status
+     * @return The result
+     */
+    public static DiscoveryResult ofTarget(JsonObject target)
+    {
+        return new DiscoveryResult(target.getInteger(Constants.DISCOVERY_ID), target.getString(Constants.IP),
+                target.getInteger(Constants.PORT), null, target.getString(Constants.STATUS), null, null, null, null);
+    }
+
+    /**
+     * Builds a failed result
+     *
+     * @param discoveryId ID of the discovery profile
+     * @param error       Why it failed, may be null
+     * @return The result
+     */
+    public static DiscoveryResult failed(Integer discoveryId, String error)
+    {
+        return new DiscoveryResult(discoveryId, null, null, null, Constants.FAIL, null, null, null, error);
+    }
+
+    /**
+     * Returns a failed copy of this result carrying the given error
+     *
+     * @param reason Why it failed
+     * @return The failed result
+     */
+    public DiscoveryResult failedWith(String reason)
+    {
+        return new DiscoveryResult(discoveryId, ip, port, ipRange, Constants.FAIL, scanned, responsive, discovered, reason);
+    }
+
+    public boolean succeeded()
+    {
+        return Constants.SUCCESS.equals(status);
+    }
+
+    /**
+     * Converts the result for API responses and the job table, leaving out fields that do not apply
+     *
+     * @return JsonObject with the non-null fields
+     */
+    public JsonObject toJson()
+    {
+        var json = new JsonObject()
+                .put(Constants.DISCOVERY_ID, discoveryId)
+                .put(Constants.IP, ip)
+                .put(Constants.PORT, port)
+                .put(Constants.IP_RANGE, ipRange)
+                .put(Constants.STATUS, status)
+                .put(Constants.SCANNED, scanned)
+                .put(Constants.RESPONSIVE, responsive)
+                .put(Constants.DISCOVERED, discovered)
+                .put(Constants.ERROR, error);
+
+        json.getMap().values().removeIf(value -> value == null);
+
+        return json;
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.engine;
+
+import io.vertx.core.json.JsonObject;
+import org.example.constants.Constants;
+
+/**
+ * One target of a discovery request
+ *
+ * @param discoveryId          ID of the discovery profile the target belongs to
+ * @param ip                   The target IP address
+ * @param port                 The target port
+ * @param lastGoodCredentialId The credential that worked last time, or null
+ */
+public record DiscoveryTarget(Integer discoveryId, String ip, int port, Integer lastGoodCredentialId)
+{
+    /**
+     * Converts the target into the mutable working object the engine fills in
+     *
+     * @return JsonObject with discovery_id, ip, port and last_good_credential_id
+     */
+    public JsonObject toJson()
+    {
+        return new JsonObject()
+                .put(Constants.DISCOVERY_ID, discoveryId)
+                .put(Constants.IP, ip)
+                .put(Constants.PORT, port)
+                .put(Constants.LAST_GOOD_CREDENTIAL_ID, lastGoodCredentialId);
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.engine;
+
+import io.vertx.core.json.JsonObject;
+import org.example.constants.Constants;
+
+/**
+ * One metrics sample ingested by the polling engine, published to live subscribers.
+ * Delivered by reference, so receivers must not modify {@code metrics}.
+ *
+ * @param provisionId ID of the polled provision
+ * @param ip          The device IP address, if the plugin reported it
+ * @param metrics     The collected metrics
+ * @param timestamp   When the sample was collected, in epoch milliseconds
+ */
+public record MetricSample(Integer provisionId, String ip, JsonObject metrics, long timestamp)
+{
+    /**
+     * Converts the sample into the JSON sent to subscribers
+     *
+     * @return JsonObject with provisionId, ip, data and timestamp
+     */
+    public JsonObject toJson()
+    {
+        return new JsonObject()
+                .put(Constants.PROVISION_ID, provisionId)
+                .put(Constants.IP, ip)
+                .put(Constants.DATA, metrics)
+                .put(Constants.TIMESTAMP, timestamp);
+    }
+}
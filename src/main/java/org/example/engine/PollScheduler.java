@@ -0,0 +1,332 @@
+package org.example.engine;
+
+import io.vertx.core.json.JsonObject;
+import org.example.constants.Constants;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps per-device polling state and decides when each provision is due next.
+ * <p>
+ * A device is polled at its own base interval ({@code poll_interval_ms} on the provision row,
+ * or the engine default). Failing devices back off exponentially up to a cap, and devices whose
+ * metrics barely change may optionally be slowed down. A successful poll with changing metrics
+ * snaps the device back to its base interval.
+ * <p>
+ * Due times and backoff levels can be checkpointed and restored so a restart does not make every
+ * device due at once. During warm-up, devices without saved state and overdue restored devices are
+ * spread randomly across their interval.
+ * <p>
+ * Not thread-safe; it is owned by the {@link PollingEngine} event loop.
+ */
+public class PollScheduler
+{
+    private static final int MAX_BACKOFF_EXPONENT = 20;
+
+    private final long defaultIntervalMs;
+
+    private final long maxBackoffMs;
+
+    private final boolean stableSlowdownEnabled;
+
+    private final double stableTolerance;
+
+    private final int stableSamples;
+
+    private final long stableIntervalMultiplier;
+
+    private final Map<Integer, DeviceSchedule> schedules = new HashMap<>();
+
+    private boolean warmingUp = true;
+
+    public PollScheduler(JsonObject pollingConfig)
+    {
+        this.defaultIntervalMs = pollingConfig.getLong(Constants.POLLING_INTERVAL_MS, Constants.DEFAULT_POLLING_INTERVAL_MS);
+
+        this.maxBackoffMs = pollingConfig.getLong(Constants.POLLING_MAX_BACKOFF_MS, Constants.DEFAULT_POLLING_MAX_BACKOFF_MS);
+
+        this.stableSlowdownEnabled = pollingConfig.getBoolean(Constants.POLLING_STABLE_SLOWDOWN, false);
+
+        this.stableTolerance = pollingConfig.getDouble(Constants.POLLING_STABLE_TOLERANCE, Constants.DEFAULT_POLLING_STABLE_TOLERANCE);
+
+        this.stableSamples = pollingConfig.getInteger(Constants.POLLING_STABLE_SAMPLES, Constants.DEFAULT_POLLING_STABLE_SAMPLES);
+
+        this.stableIntervalMultiplier = pollingConfig.getLong(Constants.POLLING_STABLE_MULTIPLIER, Constants.DEFAULT_POLLING_STABLE_MULTIPLIER);
+    }
+
+    /**
+     * Registers the device if needed and refreshes its base interval from the provision row.
+     *
+     * @param device The provision row.
+     * @return The schedule of the device.
+     */
+    public DeviceSchedule track(JsonObject device, long now)
+    {
+        var provisionId = device.getInteger(Constants.FIELD_ID);
+
+        var schedule = schedules.computeIfAbsent(provisionId, id -> {
+
+            var created = new DeviceSchedule();
+
+            created.spreadPending = warmingUp;
+
+            return created;
+        });
+
+        var interval = device.getLong(Constants.POLL_INTERVAL_MS);
+
+        schedule.baseIntervalMs = interval != null && interval > 0 ? interval : defaultIntervalMs;
+
+        if (schedule.spreadPending)
+        {
+            schedule.spreadPending = false;
+
+            if (schedule.nextDueAt < now)
+            {
+                schedule.nextDueAt = now + ThreadLocalRandom.current().nextLong(currentInterval(schedule));
+            }
+        }
+
+        return schedule;
+    }
+
+    /**
+     * Restores the checkpointed state of a device. The base interval is filled in on the next {@link #track}.
+     *
+     * @param provisionId The provision ID.
+     * @param nextDueAt   The saved next due time in epoch millis.
+     * @param failures    The saved consecutive failure count.
+     * @param stableCount The saved count of consecutive stable samples.
+     */
+    public void restore(Integer provisionId, long nextDueAt, int failures, int stableCount)
+    {
+        var schedule = new DeviceSchedule();
+
+        schedule.nextDueAt = nextDueAt;
+
+        schedule.failures = failures;
+
+        schedule.stableCount = stableCount;
+
+        schedule.spreadPending = true;
+
+        schedules.put(provisionId, schedule);
+    }
+
+    /**
+     * Ends the warm-up period; devices provisioned from now on are due immediately.
+     */
+    public void endWarmUp()
+    {
+        warmingUp = false;
+    }
+
+    /**
+     * Returns the tracked schedules keyed by provision ID, for checkpointing.
+     *
+     * @return Read-only view of the schedules.
+     */
+    public Map<Integer, DeviceSchedule> schedules()
+    {
+        return Collections.unmodifiableMap(schedules);
+    }
+
+    /**
+     * Drops state for devices that are no longer provisioned.
+     *
+     * @param provisionIds IDs of the devices that still exist.
+     * @return IDs of the devices that were dropped.
+     */
+    public Set<Integer> retainAll(Set<Integer> provisionIds)
+    {
+        var removed = new HashSet<>(schedules.keySet());
+
+        removed.removeAll(provisionIds);
+
+        schedules.keySet().removeAll(removed);
+
+        return removed;
+    }
+
+    /**
+     * Returns the schedule of the device, or null if it is not tracked.
+     *
+     * @param provisionId The provision ID.
+     * @return The device schedule.
+     */
+    public DeviceSchedule get(Integer provisionId)
+    {
+        return schedules.get(provisionId);
+    }
+
+    /**
+     * Marks the device as dispatched. Until the outcome is known it is provisionally due one base interval later.
+     *
+     * @param schedule The device schedule.
+     * @param now      The dispatch time in epoch millis.
+     */
+    public void onDispatch(DeviceSchedule schedule, long now)
+    {
+        schedule.inFlight = true;
+
+        schedule.lastDispatchAt = now;
+
+        schedule.nextDueAt = now + schedule.baseIntervalMs;
+    }
+
+    /**
+     * Records a successful poll and schedules the next one.
+     *
+     * @param schedule The device schedule.
+     * @param metrics  The collected metrics, used to detect stable devices.
+     */
+    public void onSuccess(DeviceSchedule schedule, JsonObject metrics)
+    {
+        schedule.inFlight = false;
+
+        schedule.failures = 0;
+
+        if (stableSlowdownEnabled && schedule.lastMetrics != null && isStable(schedule.lastMetrics, metrics))
+        {
+            schedule.stableCount++;
+        }
+        else
+        {
+            schedule.stableCount = 0;
+        }
+
+        schedule.lastMetrics = stableSlowdownEnabled ? metrics : null;
+
+        schedule.nextDueAt = schedule.lastDispatchAt + currentInterval(schedule);
+    }
+
+    /**
+     * Records a failed poll and backs the device off.
+     *
+     * @param schedule The device schedule.
+     */
+    public void onFailure(DeviceSchedule schedule)
+    {
+        schedule.inFlight = false;
+
+        schedule.failures++;
+
+        schedule.stableCount = 0;
+
+        schedule.lastMetrics = null;
+
+        schedule.nextDueAt = schedule.lastDispatchAt + currentInterval(schedule);
+    }
+
+    /**
+     * Computes the effective interval of the device from its base interval, failures and stability.
+     *
+     * @param schedule The device schedule.
+     * @return The interval in milliseconds.
+     */
+    public long currentInterval(DeviceSchedule schedule)
+    {
+        if (schedule.failures > 0)
+        {
+            var exponent = Math.min(schedule.failures, MAX_BACKOFF_EXPONENT);
+
+            return Math.max(schedule.baseIntervalMs, Math.min(schedule.baseIntervalMs << exponent, maxBackoffMs));
+        }
+
+        if (stableSlowdownEnabled && schedule.stableCount >= stableSamples)
+        {
+            return schedule.baseIntervalMs * stableIntervalMultiplier;
+        }
+
+        return schedule.baseIntervalMs;
+    }
+
+    /**
+     * Checks whether every numeric value changed by less than the configured relative tolerance
+     * and every other value is unchanged.
+     */
+    private boolean isStable(JsonObject previous, JsonObject current)
+    {
+        if (previous.size() != current.size())
+        {
+            return false;
+        }
+
+        for (var entry : current)
+        {
+            var before = previous.getValue(entry.getKey());
+
+            var after = entry.getValue();
+
+            if (before instanceof Number oldValue && after instanceof Number newValue)
+            {
+                var reference = Math.max(Math.abs(oldValue.doubleValue()), 1e-9);
+
+                if (Math.abs(newValue.doubleValue() - oldValue.doubleValue()) / reference > stableTolerance)
+                {
+                    return false;
+                }
+            }
+            else if (before instanceof JsonObject oldObject && after instanceof JsonObject newObject)
+            {
+                if (!isStable(oldObject, newObject))
+                {
+                    return false;
+                }
+            }
+            else if (before == null ? after != null : !before.equals(after))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Mutable scheduling state of one provision
+     */
+    public static class DeviceSchedule
+    {
+        long baseIntervalMs;
+
+        long nextDueAt;
+
+        long lastDispatchAt;
+
+        int failures;
+
+        int stableCount;
+
+        boolean inFlight;
+
+        boolean spreadPending;
+
+        JsonObject lastMetrics;
+
+        public long nextDueAt()
+        {
+            return nextDueAt;
+        }
+
+        public boolean inFlight()
+        {
+            return inFlight;
+        }
+
+        public int failures()
+        {
+            return failures;
+        }
+
+        public int stableCount()
+        {
+            return stableCount;
+        }
+    }
+}
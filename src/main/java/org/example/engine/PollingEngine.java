@@ -5,48 +5,110 @@ import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Tuple;
 import org.example.constants.Constants;
 import org.example.db.DbQueryHelper;
+import org.example.db.TableVersions;
 import org.example.utils.CredentialProfiles;
+import org.example.utils.Metrics;
 import org.example.utils.ProcessBuilderUtil;
+import org.example.utils.ReachabilityCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 public class PollingEngine extends AbstractVerticle
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(PollingEngine.class);
 
-    private static final long POLLING_INTERVAL_MS = 10000;
+    private static final String METRIC_SCHEDULE_LAG = "polling.schedule_lag_ms";
 
-    private final Map<Integer, Long> lastPollTime = new HashMap<>();
+    private static final String METRIC_CYCLES_OVERRUN = "polling.cycles.overrun";
+
+    private static final String METRIC_DEVICES_COALESCED = "polling.devices.coalesced";
+
+    private static final String METRIC_IN_FLIGHT_DEVICES = "polling.devices.in_flight";
+
+    private static final String METRIC_BATCH_DURATION = "polling.batch_duration_ms";
+
+    private static final String METRIC_DEVICES_FAILED = "polling.devices.failed";
+
+    private static final String METRIC_CURRENT_INTERVAL = "polling.interval_ms";
+
+    private static final String METRIC_LAST_GOOD_HIT = "polling.last_good_credential.hit";
 
     private final DbQueryHelper dbHelper;
 
     private final CredentialProfiles credentialProfiles;
 
-    public PollingEngine(DbQueryHelper dbHelper)
+    private final PollScheduler scheduler;
+
+    private final ReachabilityCache reachability;
+
+    private final long pollingIntervalMs;
+
+    private final long tickMs;
+
+    private final int maxInFlightBatches;
+
+    private final long checkpointMs;
+
+    // Provision rows as of the last reload; due checks run against this copy on every tick
+    private List<JsonObject> provisions = List.of();
+
+    private long provisionsVersion = -1;
+
+    private long provisionsLoadedAt = 0;
+
+    private boolean reloading = false;
+
+    private int inFlightBatches = 0;
+
+    private int inFlightDevices = 0;
+
+    public PollingEngine(DbQueryHelper dbHelper, JsonObject pollingConfig, ReachabilityCache reachability)
     {
         this.dbHelper = dbHelper;
 
         this.credentialProfiles = new CredentialProfiles(dbHelper);
+
+        this.reachability = reachability;
+
+        this.scheduler = new PollScheduler(pollingConfig);
+
+        this.pollingIntervalMs = pollingConfig.getLong(Constants.POLLING_INTERVAL_MS, Constants.DEFAULT_POLLING_INTERVAL_MS);
+
+        this.tickMs = pollingConfig.getLong(Constants.POLLING_TICK_MS, Constants.DEFAULT_POLLING_TICK_MS);
+
+        this.maxInFlightBatches = pollingConfig.getInteger(Constants.POLLING_MAX_IN_FLIGHT_BATCHES, Constants.DEFAULT_POLLING_MAX_IN_FLIGHT_BATCHES);
+
+        this.checkpointMs = pollingConfig.getLong(Constants.POLLING_CHECKPOINT_MS, Constants.DEFAULT_POLLING_CHECKPOINT_MS);
     }
 
     @Override
     public void start(Promise<Void> promise)
     {
         try {
-            vertx.setPeriodic(POLLING_INTERVAL_MS, id -> pollDevices());
+            restoreSchedulerState()
+                    .onComplete(restored -> {
+
+                        vertx.setPeriodic(tickMs, id -> pollDevices());
 
-            LOGGER.info("PollingEngine started with interval {}ms", POLLING_INTERVAL_MS);
+                        vertx.setPeriodic(checkpointMs, id -> checkpointSchedulerState());
 
-            promise.complete();
+                        LOGGER.info("PollingEngine started with interval {}ms, tick {}ms, max in-flight batches {}", pollingIntervalMs, tickMs, maxInFlightBatches);
+
+                        promise.complete();
+                    });
         }
         catch (Exception exception)
         {
@@ -57,63 +119,250 @@ public class PollingEngine extends AbstractVerticle
         }
     }
 
+    @Override
+    public void stop(Promise<Void> promise)
+    {
+        checkpointSchedulerState().onComplete(result -> promise.complete());
+    }
+
     /**
-     * Polls devices from the database and processes them if they're due for polling
+     * Loads the checkpointed due times and backoff levels into the scheduler.
+     * A failure is logged and ignored; devices are then spread across their interval instead.
+     *
+     * @return Future that completes when the state has been restored
      */
-    private void pollDevices()
+    private Future<Void> restoreSchedulerState()
     {
-        LOGGER.debug("Starting device polling cycle");
+        return dbHelper.execute(Constants.SQL_SELECT_POLL_SCHEDULE, Tuple.tuple())
+                .map(rows -> {
 
-        try {
-            dbHelper.fetchAll(Constants.PROVISION_TABLE)
-                    .onSuccess(devices -> {
+                    for (var row : rows)
+                    {
+                        scheduler.restore(row.getInteger("provision_id"), row.getLong("next_due_at"),
+                                row.getInteger("failures"), row.getInteger("stable_count"));
+                    }
 
-                        if (devices == null || devices.isEmpty())
-                        {
-                            LOGGER.debug("No provisioned devices found");
+                    LOGGER.info("Restored polling schedule for {} devices", rows.rowCount());
 
-                            return;
-                        }
+                    return (Void) null;
+                })
+                .otherwise(err -> {
+                    LOGGER.error("Failed to restore polling schedule: {}", err.getMessage());
 
-                        // Filter devices that are due for polling
-                        var devicesToProcess = filterDevicesForPolling(devices);
+                    return null;
+                });
+    }
 
-                        if (devicesToProcess.isEmpty())
-                        {
-                            LOGGER.debug("No devices due for polling in this cycle");
-                            return;
-                        }
+    /**
+     * Saves the due times and backoff levels of all tracked devices and removes rows of deleted devices
+     *
+     * @return Future that completes when the checkpoint is written
+     */
+    private Future<Void> checkpointSchedulerState()
+    {
+        try
+        {
+            var schedules = scheduler.schedules();
 
-                        LOGGER.info("Processing {} devices that are due for polling", devicesToProcess.size());
+            var batch = new ArrayList<Tuple>(schedules.size());
 
-                        processDevices(devicesToProcess)
-                                .onSuccess(v -> {
-                                    // Update last poll time for processed devices
-                                    var currentTime = System.currentTimeMillis();
+            schedules.forEach((provisionId, schedule) ->
+                    batch.add(Tuple.of(provisionId, schedule.nextDueAt(), schedule.failures(), schedule.stableCount())));
 
-                                    for (var device : devicesToProcess) {
-                                        var provisionId = device.getInteger(Constants.FIELD_ID);
+            var trackedIds = schedules.keySet().toArray(new Integer[0]);
 
-                                        if (provisionId != null)
-                                        {
-                                            lastPollTime.put(provisionId, currentTime);
-                                        }
+            return dbHelper.executeBatch(Constants.SQL_UPSERT_POLL_SCHEDULE, batch)
+                    .compose(v -> dbHelper.execute(Constants.SQL_DELETE_STALE_POLL_SCHEDULE, Tuple.of(trackedIds)))
+                    .<Void>mapEmpty()
+                    .onSuccess(v -> LOGGER.debug("Checkpointed polling schedule for {} devices", batch.size()))
+                    .onFailure(err -> LOGGER.error("Failed to checkpoint polling schedule: {}", err.getMessage()));
+        }
+        catch (Exception exception)
+        {
+            LOGGER.error("Error in checkpointSchedulerState: {}", exception.getMessage(), exception);
 
-                                    }
-                                    LOGGER.debug("Updated last poll timestamps for {} devices", devicesToProcess.size());
-                                })
-                                .onFailure(err -> LOGGER.error("Failed to process devices: {}", err.getMessage()));
-                    })
-                    .onFailure(err -> LOGGER.error("Failed to fetch provisions: {}", err.getMessage()));
+            return Future.failedFuture(exception);
+        }
+    }
+
+    /**
+     * Runs on every tick. The provision list is reloaded once per polling interval, or as soon as the
+     * provisions table version moves; between reloads the due checks run against the in-memory copy.
+     */
+    private void pollDevices()
+    {
+        if (reloading)
+        {
+            return;
+        }
+
+        try
+        {
+            var version = TableVersions.current(Constants.PROVISION_TABLE);
+
+            if (version != provisionsVersion || System.currentTimeMillis() - provisionsLoadedAt >= pollingIntervalMs)
+            {
+                reloadProvisions(version);
+            }
+            else
+            {
+                dispatchDueDevices();
+            }
         }
         catch (Exception exception)
         {
-                LOGGER.error("Error in pollDevices: {}", exception.getMessage(), exception);
+            LOGGER.error("Error in pollDevices: {}", exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Reads the provision list from the database, then dispatches the devices that are due.
+     * A failed read keeps the previous list, so polling carries on with it until the next attempt.
+     *
+     * @param version The provisions table version taken before the read.
+     */
+    private void reloadProvisions(long version)
+    {
+        LOGGER.debug("Reloading provisioned devices");
+
+        reloading = true;
+
+        dbHelper.fetchAll(Constants.PROVISION_TABLE)
+                .onComplete(result -> {
+
+                    reloading = false;
+
+                    provisionsLoadedAt = System.currentTimeMillis();
+                })
+                .onSuccess(devices -> {
+
+                    provisions = devices == null ? List.of() : devices;
+
+                    provisionsVersion = version;
+
+                    if (provisions.isEmpty())
+                    {
+                        LOGGER.debug("No provisioned devices found");
+                    }
+
+                    dispatchDueDevices();
+
+                    // Only the provisions known at startup are spread; later ones are polled right away
+                    scheduler.endWarmUp();
+                })
+                .onFailure(err -> LOGGER.error("Failed to fetch provisions: {}", err.getMessage()));
+    }
+
+    /**
+     * Dispatches the devices of the in-memory provision list that are due. When due devices cannot be
+     * dispatched because the number of in-flight plugin batches has reached its limit, the cycle is counted
+     * as overrun and the devices stay due for the next tick.
+     */
+    private void dispatchDueDevices()
+    {
+        var devicesToProcess = filterDevicesForPolling(provisions);
+
+        if (devicesToProcess.isEmpty())
+        {
+            return;
+        }
+
+        if (inFlightBatches >= maxInFlightBatches)
+        {
+            Metrics.increment(METRIC_CYCLES_OVERRUN);
+
+            LOGGER.debug("{} devices due but {} batches already in flight, deferring them", devicesToProcess.size(), inFlightBatches);
+
+            return;
+        }
+
+        LOGGER.info("Processing {} devices that are due for polling", devicesToProcess.size());
+
+        dispatchDevices(devicesToProcess);
+    }
+
+    /**
+     * Marks the devices as in flight, records their schedule lag and starts one plugin batch for them.
+     * Once the batch completes every device is rescheduled according to its own outcome.
+     *
+     * @param devices List of devices due for polling
+     */
+    private void dispatchDevices(List<JsonObject> devices)
+    {
+        var currentTime = System.currentTimeMillis();
+
+        var dispatched = new HashMap<Integer, PollScheduler.DeviceSchedule>();
+
+        for (var device : devices)
+        {
+            var provisionId = device.getInteger(Constants.FIELD_ID);
+
+            var schedule = scheduler.get(provisionId);
+
+            if (schedule.nextDueAt() > 0)
+            {
+                var lag = Math.max(0, currentTime - schedule.nextDueAt());
+
+                Metrics.record(METRIC_SCHEDULE_LAG, lag);
+
+                Metrics.gauge(METRIC_SCHEDULE_LAG + "." + provisionId, lag);
             }
+
+            // The next due time is based on the dispatch time, not on completion
+            scheduler.onDispatch(schedule, currentTime);
+
+            dispatched.put(provisionId, schedule);
+        }
+
+        inFlightBatches++;
+
+        inFlightDevices += dispatched.size();
+
+        Metrics.gauge(METRIC_IN_FLIGHT_DEVICES, inFlightDevices);
+
+        processDevices(devices)
+                .onComplete(result -> {
+
+                    inFlightBatches--;
+
+                    inFlightDevices -= dispatched.size();
+
+                    Metrics.gauge(METRIC_IN_FLIGHT_DEVICES, inFlightDevices);
+
+                    Metrics.record(METRIC_BATCH_DURATION, System.currentTimeMillis() - currentTime);
+
+                    var collected = result.succeeded() ? result.result() : Map.<Integer, JsonObject>of();
+
+                    if (result.failed())
+                    {
+                        LOGGER.error("Failed to process devices: {}", result.cause().getMessage());
+                    }
+
+                    dispatched.forEach((provisionId, schedule) -> {
+
+                        var metrics = collected.get(provisionId);
+
+                        if (metrics != null)
+                        {
+                            scheduler.onSuccess(schedule, metrics);
+                        }
+                        else
+                        {
+                            scheduler.onFailure(schedule);
+
+                            Metrics.increment(METRIC_DEVICES_FAILED);
+                        }
+
+                        Metrics.gauge(METRIC_CURRENT_INTERVAL + "." + provisionId, scheduler.currentInterval(schedule));
+                    });
+
+                    LOGGER.debug("Completed polling batch: {} of {} devices collected", collected.size(), dispatched.size());
+                });
     }
 
     /**
-     * Filter devices that are due for polling based on their last poll time
+     * Filter devices that are due for polling based on their own schedule.
+     * Devices whose previous poll is still in flight are skipped rather than re-issued.
      *
      * @param allDevices List of all provisioned devices
      * @return List of devices that should be polled in this cycle
@@ -124,8 +373,9 @@ public class PollingEngine extends AbstractVerticle
         {
             var currentTime = System.currentTimeMillis();
 
+            var knownDevices = new HashSet<Integer>();
 
-            return allDevices.stream()
+            var dueDevices = allDevices.stream()
                     .filter(device -> {
                         var provisionId = device.getInteger(Constants.FIELD_ID);
 
@@ -134,14 +384,41 @@ public class PollingEngine extends AbstractVerticle
                             return false;
                         }
 
+                        knownDevices.add(provisionId);
+
+                        var schedule = scheduler.track(device, currentTime);
+
+                        // Check if the device has reached its next due time
+                        if (currentTime < schedule.nextDueAt())
+                        {
+                            return false;
+                        }
+
+                        if (schedule.inFlight())
+                        {
+                            Metrics.increment(METRIC_DEVICES_COALESCED);
+
+                            // Still report how late the device is while it waits on the previous poll
+                            Metrics.gauge(METRIC_SCHEDULE_LAG + "." + provisionId, currentTime - schedule.nextDueAt());
 
-                        // Get last poll time, default to 0 if never polled
-                        var lastPoll = lastPollTime.getOrDefault(provisionId, 0L);
+                            LOGGER.debug("Skipping provision {}, previous poll still in flight", provisionId);
 
-                        // Check if enough time has passed since last poll
-                        return (currentTime - lastPoll >= POLLING_INTERVAL_MS);
+                            return false;
+                        }
+
+                        return true;
                     })
                     .toList();
+
+            // Forget devices that have been removed from provisions
+            for (var provisionId : scheduler.retainAll(knownDevices))
+            {
+                Metrics.removeGauge(METRIC_SCHEDULE_LAG + "." + provisionId);
+
+                Metrics.removeGauge(METRIC_CURRENT_INTERVAL + "." + provisionId);
+            }
+
+            return dueDevices;
         }
         catch (Exception exception)
         {
@@ -153,60 +430,70 @@ public class PollingEngine extends AbstractVerticle
     }
 
     /**
-     * Processes the list of provisioned devices
+     * Processes the list of provisioned devices. Devices with a remembered working credential are polled
+     * with that credential alone first; those where it fails are polled again with their full list.
      *
      * @param devices List of provisioned devices
-     * @return Future that completes when all devices are processed
+     * @return Future with the collected metrics keyed by provision ID; devices missing from it failed
      */
-    private Future<Void> processDevices(List<JsonObject> devices)
+    private Future<Map<Integer, JsonObject>> processDevices(List<JsonObject> devices)
     {
         LOGGER.info("Processing {} provisioned devices", devices.size());
 
         try
         {
-            var contexts = new JsonArray();
+            var attempts = new ArrayList<CredentialAttempt>();
 
             // Collect contexts for all devices
-            var collectFuture = Future.succeededFuture(contexts);
+            var collectFuture = Future.<Void>succeededFuture();
 
             for (var device : devices)
             {
                 collectFuture = collectFuture.compose(res ->
-                        collectDeviceMetrics(device).map(context -> {
-                            if (context != null)
+                        collectDeviceMetrics(device).map(attempt -> {
+                            if (attempt != null)
                             {
-                                res.add(context);
+                                attempts.add(attempt);
                             }
-                            return res;
+                            return null;
                         })
                 );
             }
 
-            return collectFuture.compose(contextsArray -> {
-                if (contextsArray.isEmpty())
+            return collectFuture.compose(v -> {
+                if (attempts.isEmpty())
                 {
                     LOGGER.warn("No valid device contexts to process");
-                    return Future.succeededFuture();
+                    return Future.succeededFuture(Map.of());
                 }
 
-                var goPluginInput = createGoPluginInput(contextsArray);
+                return runCollect(attempts, true)
+                        .compose(collected -> {
 
-                var pluginInput = new JsonArray().add(goPluginInput);
+                            var fallback = attempts.stream()
+                                    .filter(attempt -> attempt.preferred != null && !collected.containsKey(attempt.provisionId))
+                                    .toList();
 
-                return ProcessBuilderUtil.spawnPluginEngine(vertx, pluginInput)
-                        .compose(resultArray -> {
+                            Metrics.add(METRIC_LAST_GOOD_HIT, attempts.stream().filter(attempt -> attempt.preferred != null).count() - fallback.size());
 
-                            if (resultArray == null || resultArray.isEmpty())
+                            if (fallback.isEmpty())
                             {
-                                LOGGER.warn("Failed to collect metrics for devices");
-                                return Future.succeededFuture();
+                                return Future.succeededFuture(collected);
                             }
 
-                            LOGGER.info("Successfully collected metrics for devices");
+                            LOGGER.info("Retrying {} devices with their full credential list", fallback.size());
 
-                            // Process and store the results from the Go plugin
-                            return processPluginResults(resultArray);
-                        });
+                            return runCollect(fallback, false)
+                                    .map(retried -> {
+
+                                        var merged = new HashMap<>(collected);
+
+                                        merged.putAll(retried);
+
+                                        return merged;
+                                    });
+                        })
+                        .compose(collected -> storeLastGoodCredentials(attempts).map(collected));
             });
         }
         catch (Exception e)
@@ -218,21 +505,122 @@ public class PollingEngine extends AbstractVerticle
 
     }
 
+    /**
+     * Runs one plugin invocation for the given devices and stores the collected metrics
+     *
+     * @param attempts  The devices to poll
+     * @param preferred Whether to send only the remembered credential of devices that have one
+     * @return Future with the collected metrics keyed by provision ID
+     */
+    private Future<Map<Integer, JsonObject>> runCollect(List<CredentialAttempt> attempts, boolean preferred)
+    {
+        var contexts = new JsonArray();
+
+        var sentById = new HashMap<Integer, JsonArray>();
+
+        for (var attempt : attempts)
+        {
+            var sent = preferred && attempt.preferred != null ? attempt.preferred : attempt.profiles;
+
+            sentById.put(attempt.provisionId, sent);
+
+            contexts.add(attempt.context.copy().put(Constants.CREDENTIALS, credentialProfiles.formatCredentials(sent)));
+        }
+
+        var pluginInput = new JsonArray().add(createGoPluginInput(contexts));
+
+        return ProcessBuilderUtil.spawnPluginEngine(vertx, pluginInput)
+                .compose(resultArray -> {
+
+                    if (resultArray == null || resultArray.isEmpty())
+                    {
+                        LOGGER.warn("Failed to collect metrics for devices");
+                        return Future.succeededFuture(Map.<Integer, JsonObject>of());
+                    }
+
+                    LOGGER.info("Successfully collected metrics for devices");
+
+                    for (var i = 0; i < resultArray.size(); i++)
+                    {
+                        var result = resultArray.getJsonObject(i);
+
+                        if (result == null || !Constants.SUCCESS.equalsIgnoreCase(result.getString(Constants.STATUS, "")))
+                        {
+                            continue;
+                        }
+
+                        var provisionId = result.getInteger(Constants.PROVISION_ID);
+
+                        for (var attempt : attempts)
+                        {
+                            if (attempt.provisionId.equals(provisionId))
+                            {
+                                attempt.succeededWith = credentialProfiles.successfulCredentialId(sentById.get(provisionId), result);
+
+                                attempt.succeeded = true;
+                            }
+                        }
+                    }
+
+                    // Process and store the results from the Go plugin
+                    return processPluginResults(resultArray);
+                });
+    }
+
+    /**
+     * Stores the working credential of every device where it changed. A success that cannot be tied to one
+     * credential clears it, so the next cycle goes back to the full list.
+     *
+     * @param attempts The polled devices
+     * @return Future that completes when the updates are written; failures are only logged
+     */
+    private Future<Void> storeLastGoodCredentials(List<CredentialAttempt> attempts)
+    {
+        var batch = new ArrayList<Tuple>();
+
+        var changed = new ArrayList<Integer>();
+
+        for (var attempt : attempts)
+        {
+            if (attempt.succeeded && !Objects.equals(attempt.succeededWith, attempt.lastGood))
+            {
+                batch.add(Tuple.of(attempt.succeededWith, attempt.provisionId));
+
+                changed.add(attempt.provisionId);
+            }
+        }
+
+        if (batch.isEmpty())
+        {
+            return Future.succeededFuture();
+        }
+
+        // Bump only after a real change, or every poll cycle would invalidate the provision ETags and caches
+        return dbHelper.executeBatch(Constants.SQL_UPDATE_PROVISION_LAST_GOOD_CREDENTIAL, batch)
+                .onSuccess(result -> TableVersions.bump(Constants.PROVISION_TABLE, changed))
+                .onFailure(err -> LOGGER.error("Failed to store last good credentials: {}", err.getMessage()))
+                .otherwiseEmpty();
+    }
+
     /**
      * Process plugin results and store them in the database
      *
      * @param resultArray The array of results returned from the plugin
-     * @return Future that completes when all results are stored
+     * @return Future with the successfully collected metrics keyed by provision ID
      */
-    private Future<Void> processPluginResults(JsonArray resultArray)
+    private Future<Map<Integer, JsonObject>> processPluginResults(JsonArray resultArray)
     {
+        var collected = new HashMap<Integer, JsonObject>();
+
         try {
             if (resultArray == null || resultArray.isEmpty()) {
-                return Future.succeededFuture();
+                return Future.succeededFuture(collected);
             }
 
             LOGGER.info("Processing plugin results for {} entries", resultArray.size());
 
+            var storeFutures = new ArrayList<Future<Void>>();
+
             // Process each result and store its metrics
             for (var i = 0; i < resultArray.size(); i++)
             {
@@ -270,25 +658,26 @@ public class PollingEngine extends AbstractVerticle
                     continue;
                 }
 
-                final var finalProvisionId = provisionId;
+                collected.put(provisionId, metrics);
 
-                final var finalMetrics = metrics;
+                // Fire and forget; live subscribers buffer on their own side and never hold the engine back
+                vertx.eventBus().publish(Constants.LIVE_METRICS_ADDRESS,
+                        new MetricSample(provisionId, result.getString(Constants.IP), metrics, System.currentTimeMillis()));
 
-                return Future.succeededFuture().compose(v ->
-                        storeMetricsInDatabase(new JsonObject()
-                                .put(Constants.STATUS, status)
-                                .put(Constants.RESULT, finalMetrics)
-                                .put(Constants.PROVISION_ID, finalProvisionId))
-                );
+                storeFutures.add(storeMetricsInDatabase(new JsonObject()
+                        .put(Constants.STATUS, status)
+                        .put(Constants.RESULT, metrics)
+                        .put(Constants.PROVISION_ID, provisionId)));
             }
 
-            return Future.succeededFuture();
+            // A failed insert is already logged; the device itself was still reachable
+            return Future.join(storeFutures).otherwiseEmpty().map(collected);
         }
         catch (Exception exception)
         {
             LOGGER.error("Error in processPluginResults: {}", exception.getMessage(), exception);
 
-            return Future.succeededFuture();
+            return Future.succeededFuture(collected);
         }
     }
 
@@ -296,10 +685,10 @@ public class PollingEngine extends AbstractVerticle
     /**
      * Collects device metrics by checking availability and fetching credentials
      *
-     * @param device The device JSON object containing IP, port, and credential IDs
-     * @return Future that completes with the context for the device
+     * @param device The device JSON object containing IP, port, credential IDs and the last good credential
+     * @return Future that completes with the device's plugin context and credentials, or null if it cannot be polled
      */
-    private Future<JsonObject> collectDeviceMetrics(JsonObject device)
+    private Future<CredentialAttempt> collectDeviceMetrics(JsonObject device)
     {
         var ip = device.getString(Constants.IP);
 
@@ -322,11 +711,7 @@ public class PollingEngine extends AbstractVerticle
         }
 
 
-        var profile = new JsonObject()
-                .put(Constants.IP, ip)
-                .put(Constants.PORT, port);
-
-        return ProcessBuilderUtil.checkAvailability(vertx, profile)
+        return reachability.check(vertx, ip, port)
                 .compose(isAvailable -> {
                     if (!isAvailable)
                     {
@@ -348,10 +733,12 @@ public class PollingEngine extends AbstractVerticle
                                 var context = new JsonObject()
                                         .put(Constants.IP, ip)
                                         .put(Constants.PORT, port)
-                                        .put(Constants.CREDENTIALS, credentialProfiles.formatCredentials(profiles))
                                         .put(Constants.PROVISION_ID, provisionId);
 
-                                return Future.succeededFuture(context);
+                                var lastGood = device.getInteger(Constants.LAST_GOOD_CREDENTIAL_ID);
+
+                                return Future.succeededFuture(new CredentialAttempt(provisionId, context, profiles,
+                                        credentialProfiles.preferredCredentials(profiles, lastGood), lastGood));
                             });
                 });
     }
@@ -434,4 +821,37 @@ public class PollingEngine extends AbstractVerticle
             return Future.failedFuture("Error in storeMetricsInDatabase");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * One device's credentials for a polling cycle and which of them worked
+     */
+    private static final class CredentialAttempt
+    {
+        private final Integer provisionId;
+
+        private final JsonObject context;
+
+        private final JsonArray profiles;
+
+        private final JsonArray preferred;
+
+        private final Integer lastGood;
+
+        private boolean succeeded = false;
+
+        private Integer succeededWith;
+
+        private CredentialAttempt(Integer provisionId, JsonObject context, JsonArray profiles, JsonArray preferred, Integer lastGood)
+        {
+            this.provisionId = provisionId;
+
+            this.context = context;
+
+            this.profiles = profiles;
+
+            this.preferred = preferred;
+
+            this.lastGood = lastGood;
+        }
+    }
+}
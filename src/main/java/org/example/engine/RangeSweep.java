@@ -0,0 +1,295 @@
+package org.example.engine;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.NetClient;
+import org.example.constants.Constants;
+import org.example.utils.IpRange;
+import org.example.utils.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.function.Function;
+
+/**
+ * One sweep of an IP range over a set of candidate ports.
+ * <p>
+ * Candidates are generated lazily from the {@link IpRange} and probed with non-blocking TCP connects,
+ * with at most {@code concurrency} connects in flight and at most {@code perSubnetRate} connects per
+ * second into any single /24. Responsive hosts are collected into groups of {@code groupSize} and handed
+ * to the credential/plugin stage; probing pauses while {@code maxPendingGroups} groups are in that stage,
+ * so a slow plugin applies back-pressure instead of buffering the whole range.
+ * <p>
+ * Runs entirely on the event loop of the verticle that created it.
+ */
+class RangeSweep
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(RangeSweep.class);
+
+    private static final String METRIC_PROBES = "discovery.sweep.probes";
+
+    private static final String METRIC_RESPONSIVE = "discovery.sweep.responsive";
+
+    private static final String METRIC_THROTTLED = "discovery.sweep.throttled";
+
+    private final Vertx vertx;
+
+    private final NetClient netClient;
+
+    private final PrimitiveIterator.OfLong addresses;
+
+    private final List<Integer> ports;
+
+    private final int concurrency;
+
+    private final int perSubnetRate;
+
+    private final int groupSize;
+
+    private final int maxPendingGroups;
+
+    private final Function<List<JsonObject>, Future<List<JsonObject>>> discoverGroup;
+
+    private final Promise<JsonObject> promise = Promise.promise();
+
+    private final Map<Long, long[]> subnetWindows = new HashMap<>();
+
+    private final List<JsonObject> discovered = new ArrayList<>();
+
+    private List<JsonObject> pendingGroup = new ArrayList<>();
+
+    private long currentAddress = -1;
+
+    private int portIndex = 0;
+
+    private int activeProbes = 0;
+
+    private int groupsInFlight = 0;
+
+    private long scanned = 0;
+
+    private long responsive = 0;
+
+    private boolean timerPending = false;
+
+    private boolean finished = false;
+
+    RangeSweep(Vertx vertx, NetClient netClient, IpRange range, List<Integer> ports, JsonObject sweepConfig,
+               Function<List<JsonObject>, Future<List<JsonObject>>> discoverGroup)
+    {
+        this.vertx = vertx;
+
+        this.netClient = netClient;
+
+        this.addresses = range.iterator();
+
+        this.ports = ports;
+
+        this.concurrency = sweepConfig.getInteger(Constants.SWEEP_CONCURRENCY, Constants.DEFAULT_SWEEP_CONCURRENCY);
+
+        this.perSubnetRate = sweepConfig.getInteger(Constants.SWEEP_PER_SUBNET_RATE, Constants.DEFAULT_SWEEP_PER_SUBNET_RATE);
+
+        this.groupSize = sweepConfig.getInteger(Constants.SWEEP_GROUP_SIZE, Constants.DEFAULT_SWEEP_GROUP_SIZE);
+
+        this.maxPendingGroups = sweepConfig.getInteger(Constants.SWEEP_MAX_PENDING_GROUPS, Constants.DEFAULT_SWEEP_MAX_PENDING_GROUPS);
+
+        this.discoverGroup = discoverGroup;
+    }
+
+    /**
+     * Starts the sweep.
+     *
+     * @return Future with the number of scanned candidates, responsive hosts and the hosts that passed the plugin stage
+     */
+    Future<JsonObject> run()
+    {
+        pump();
+
+        return promise.future();
+    }
+
+    /**
+     * Starts as many probes as the limits allow and completes the sweep once everything has drained
+     */
+    private void pump()
+    {
+        if (finished)
+        {
+            return;
+        }
+
+        while (activeProbes < concurrency && groupsInFlight < maxPendingGroups && !timerPending && hasNextCandidate())
+        {
+            var delay = reserveSubnetSlot(currentAddress);
+
+            if (delay > 0)
+            {
+                Metrics.increment(METRIC_THROTTLED);
+
+                timerPending = true;
+
+                vertx.setTimer(delay, id -> {
+
+                    timerPending = false;
+
+                    pump();
+                });
+
+                return;
+            }
+
+            probe(IpRange.toString(currentAddress), ports.get(portIndex++));
+        }
+
+        if (!hasNextCandidate() && activeProbes == 0)
+        {
+            if (!pendingGroup.isEmpty())
+            {
+                dispatchGroup();
+            }
+            else if (groupsInFlight == 0)
+            {
+                finished = true;
+
+                LOGGER.info("Sweep finished: {} candidates scanned, {} responsive, {} discovered", scanned, responsive, discovered.size());
+
+                promise.complete(new JsonObject()
+                        .put(Constants.SCANNED, scanned)
+                        .put(Constants.RESPONSIVE, responsive)
+                        .put(Constants.DISCOVERED, discovered));
+            }
+        }
+    }
+
+    /**
+     * Moves to the next (address, port) candidate if the current address has no ports left
+     *
+     * @return true if there is a candidate to probe
+     */
+    private boolean hasNextCandidate()
+    {
+        if (currentAddress >= 0 && portIndex < ports.size())
+        {
+            return true;
+        }
+
+        if (!addresses.hasNext())
+        {
+            return false;
+        }
+
+        currentAddress = addresses.nextLong();
+
+        portIndex = 0;
+
+        return true;
+    }
+
+    /**
+     * Takes one slot from the per-second budget of the address's /24
+     *
+     * @param address The address about to be probed
+     * @return 0 if the probe may start now, otherwise milliseconds until the next window
+     */
+    private long reserveSubnetSlot(long address)
+    {
+        var now = System.currentTimeMillis();
+
+        var second = now / 1000;
+
+        var window = subnetWindows.computeIfAbsent(address >>> 8, key -> new long[2]);
+
+        if (window[0] != second)
+        {
+            window[0] = second;
+
+            window[1] = 0;
+        }
+
+        if (window[1] >= perSubnetRate)
+        {
+            return 1000 - (now % 1000);
+        }
+
+        window[1]++;
+
+        return 0;
+    }
+
+    /**
+     * Attempts a TCP connect to one candidate
+     *
+     * @param ip   The candidate address
+     * @param port The candidate port
+     */
+    private void probe(String ip, int port)
+    {
+        activeProbes++;
+
+        Metrics.increment(METRIC_PROBES);
+
+        netClient.connect(port, ip)
+                .onComplete(result -> {
+
+                    activeProbes--;
+
+                    scanned++;
+
+                    if (result.succeeded())
+                    {
+                        result.result().close();
+
+                        responsive++;
+
+                        Metrics.increment(METRIC_RESPONSIVE);
+
+                        pendingGroup.add(new JsonObject()
+                                .put(Constants.IP, ip)
+                                .put(Constants.PORT, port));
+
+                        if (pendingGroup.size() >= groupSize)
+                        {
+                            dispatchGroup();
+                        }
+                    }
+
+                    pump();
+                });
+    }
+
+    /**
+     * Hands the collected responsive hosts to the credential/plugin stage
+     */
+    private void dispatchGroup()
+    {
+        var group = pendingGroup;
+
+        pendingGroup = new ArrayList<>();
+
+        groupsInFlight++;
+
+        discoverGroup.apply(group)
+                .onComplete(result -> {
+
+                    groupsInFlight--;
+
+                    if (result.succeeded())
+                    {
+                        discovered.addAll(result.result());
+                    }
+                    else
+                    {
+                        LOGGER.error("Plugin stage failed for {} responsive hosts: {}", group.size(), result.cause().getMessage());
+                    }
+
+                    pump();
+                });
+    }
+}
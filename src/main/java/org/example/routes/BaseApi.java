@@ -1,17 +1,33 @@
 package org.example.routes;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.networknt.schema.JsonSchema;
-import com.networknt.schema.JsonSchemaFactory;
-import com.networknt.schema.SpecVersion;
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.sqlclient.SqlClient;
 import org.example.constants.Constants;
 import org.example.db.DbQueryHelper;
+import org.example.db.EntityCache;
+import org.example.db.TableVersions;
 import org.example.utils.ApiResponse;
+import org.example.utils.CompiledSchema;
+import org.example.utils.ListResponseCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
 public abstract class BaseApi
 {
 
@@ -21,15 +37,25 @@ public abstract class BaseApi
 
     protected final DbQueryHelper dbHelper;
 
-    protected final JsonSchema jsonSchema;
+    protected final CompiledSchema schema;
+
+    protected final EntityCache entityCache;
+
+    protected final ListResponseCache listCache;
+
+    private volatile int lastListSize;
 
     private static final Logger logger = LoggerFactory.getLogger(BaseApi.class);
 
     public static final String FIELD_ID = "id";
 
-    private static final ObjectMapper mapper = new ObjectMapper();
-
     protected BaseApi(SqlClient client, String tableName, String moduleName, String schemaPath)
+    {
+        this(client, tableName, moduleName, schemaPath, null, null);
+    }
+
+    protected BaseApi(SqlClient client, String tableName, String moduleName, String schemaPath,
+                      EntityCache entityCache, ListResponseCache listCache)
     {
         this.tableName = tableName;
 
@@ -37,18 +63,14 @@ public abstract class BaseApi
 
         this.dbHelper = new DbQueryHelper(client);
 
-        // Load JSON schema from resources
-        try(var schemaStream = getClass().getClassLoader().getResourceAsStream(schemaPath))
-        {
-            if (schemaStream == null)
-            {
-                throw new IllegalArgumentException("Schema file not found: " + schemaPath);
-            }
-            var schemaNode = mapper.readTree(schemaStream);
+        this.entityCache = entityCache;
 
-            var factory = JsonSchemaFactory.getInstance(SpecVersion.VersionFlag.V7);
+        this.listCache = listCache;
 
-            this.jsonSchema = factory.getSchema(schemaNode);
+        try
+        {
+            // Compiled once per schema file and shared by every route instance
+            this.schema = CompiledSchema.load(schemaPath);
 
             logger.info("Initialized {} API with table {} and schema {}", moduleName, tableName, schemaPath);
         }
@@ -79,23 +101,12 @@ public abstract class BaseApi
 
         try
         {
-            // Convert Vert.x JsonObject to Jackson JsonNode
-            var bodyNode = mapper.readTree(body.encode());
-
-            // Validate against schema
-            var errors = jsonSchema.validate(bodyNode);
+            // Validate the already parsed body; no re-encoding into another tree model
+            var errors = schema.validate(body);
 
             if (!errors.isEmpty())
             {
-                // Build error message
-                var errorMsg = new StringBuilder("Validation errors: ");
-
-                for (var error : errors)
-                {
-                    errorMsg.append(error.getMessage()).append("; ");
-                }
-
-                logger.error(errorMsg.toString());
+                logger.error("Validation errors: {}", String.join("; ", errors));
 
                 ApiResponse.error(ctx, "fields are required", Constants.HTTP_BAD_REQUEST);
 
@@ -137,6 +148,55 @@ public abstract class BaseApi
         }
     }
 
+    /**
+     * Fetches one row of the table by ID, through the entity cache when the route has one.
+     *
+     * @param id the row ID.
+     * @return Future with the row.
+     */
+    protected Future<JsonObject> fetchById(Object id)
+    {
+        return entityCache != null
+                ? entityCache.fetchOne(dbHelper, tableName, id)
+                : dbHelper.fetchOne(tableName, FIELD_ID, id);
+    }
+
+    /**
+     * Checks the request's {@code If-None-Match} header against the current entity tag.
+     *
+     * @param ctx    the routing context containing the request.
+     * @param etag   the entity tag of the current representation.
+     * @param exists whether the resource is known to exist, which {@code *} requires.
+     * @return true if the client already holds the current representation.
+     */
+    protected boolean isNotModified(RoutingContext ctx, String etag, boolean exists)
+    {
+        var ifNoneMatch = ctx.request().getHeader(HttpHeaders.IF_NONE_MATCH);
+
+        if (ifNoneMatch == null)
+        {
+            return false;
+        }
+
+        for (var candidate : ifNoneMatch.split(","))
+        {
+            var tag = candidate.trim();
+
+            // Weak comparison, as GET allows
+            if (tag.startsWith("W/"))
+            {
+                tag = tag.substring(2);
+            }
+
+            if ((exists && tag.equals("*")) || tag.equals(etag))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Creates a new record in the table.
      *
@@ -257,9 +317,31 @@ public abstract class BaseApi
                 return;
             }
 
-            dbHelper.fetchOne(tableName, FIELD_ID, id)
+            var version = TableVersions.current(tableName);
+
+            var etag = TableVersions.tag(tableName, id, version);
+
+            // A matching tag was handed out for this row at the current version, so this needs no lookup
+            if (isNotModified(ctx, etag, false))
+            {
+                ApiResponse.notModified(ctx, etag);
+
+                return;
+            }
+
+            fetchById(id)
                     .onSuccess(row -> {
                         if (row != null) {
+                            // "*" matches any current representation, but only once the row is known to exist
+                            if (isNotModified(ctx, etag, true))
+                            {
+                                ApiResponse.notModified(ctx, etag);
+
+                                return;
+                            }
+
+                            ctx.response().putHeader(HttpHeaders.ETAG, etag);
+
                             ApiResponse.success(ctx, row, moduleName + " found", Constants.HTTP_OK);
                         } else {
                             ApiResponse.error(ctx, moduleName + " not found", Constants.HTTP_NOT_FOUND);
@@ -288,10 +370,50 @@ public abstract class BaseApi
     {
         try
         {
-            logger.info("Fetching all {} records", moduleName);
+            var listQuery = parseListQuery(ctx);
+
+            if (listQuery == null)
+            {
+                return;
+            }
+
+            var version = TableVersions.current(tableName);
+
+            var etag = listQuery.key().isEmpty()
+                    ? TableVersions.tag(tableName, version)
+                    : TableVersions.tag(tableName, URLEncoder.encode(listQuery.key(), StandardCharsets.UTF_8), version);
+
+            if (isNotModified(ctx, etag, true))
+            {
+                ApiResponse.notModified(ctx, etag);
+
+                return;
+            }
+
+            Supplier<Future<Buffer>> query = () -> {
+
+                logger.info("Fetching all {} records", moduleName);
+
+                return dbHelper.fetchAllRows(tableName, listQuery.columns(), listQuery.filters())
+                        .map(rows -> {
+
+                            // Rows are written straight into a body sized like the last one
+                            var body = ApiResponse.encodeRows(rows, moduleName + " list fetched", lastListSize);
+
+                            lastListSize = body.length();
+
+                            return body;
+                        });
+            };
+
+            // Identical concurrent requests share one query and one encoded body
+            (listCache != null ? listCache.get(tableName + "?" + listQuery.key(), version, query) : query.get())
+                    .onSuccess(body -> {
 
-            dbHelper.fetchAll(tableName)
-                    .onSuccess(rows -> ApiResponse.success(ctx, rows, moduleName + " list fetched", Constants.HTTP_OK))
+                        ctx.response().putHeader(HttpHeaders.ETAG, etag);
+
+                        ApiResponse.send(ctx, body, Constants.HTTP_OK);
+                    })
                     .onFailure(err -> {
                         logger.error("Failed to fetch all {}: {}", moduleName, err.getMessage());
                         ApiResponse.error(ctx, "Failed to fetch all " + moduleName, Constants.HTTP_INTERNAL_SERVER_ERROR);
@@ -305,4 +427,120 @@ public abstract class BaseApi
         }
 
     }
-}
\ No newline at end of file
+
+    /**
+     * Columns a list request may select with {@code ?fields=}; projection is not offered if empty.
+     *
+     * @return the selectable columns.
+     */
+    protected Set<String> listColumns()
+    {
+        return Set.of();
+    }
+
+    /**
+     * Filters a list request may use, out of {@code status}, {@code ip_prefix} and {@code updated_since}.
+     *
+     * @return the supported filters.
+     */
+    protected Set<String> listFilters()
+    {
+        return Set.of();
+    }
+
+    /**
+     * Reads {@code fields} and the filters from the query string, checking them against the route's whitelists.
+     *
+     * @param ctx the routing context containing the request.
+     * @return the parsed query, or null if the request was rejected.
+     */
+    private ListQuery parseListQuery(RoutingContext ctx)
+    {
+        var columns = new ArrayList<String>();
+
+        var filters = new TreeMap<String, Object>();
+
+        var key = new StringBuilder();
+
+        var fields = ctx.request().getParam(Constants.FIELDS);
+
+        if (fields != null && !fields.isBlank())
+        {
+            for (var field : fields.split(","))
+            {
+                var column = field.trim();
+
+                if (!listColumns().contains(column))
+                {
+                    ApiResponse.error(ctx, "Unknown field '" + column + "'", Constants.HTTP_BAD_REQUEST);
+
+                    return null;
+                }
+
+                if (!columns.contains(column))
+                {
+                    columns.add(column);
+                }
+            }
+
+            key.append(Constants.FIELDS).append('=').append(String.join(",", columns));
+        }
+
+        for (var filter : List.of(Constants.FILTER_STATUS, Constants.FILTER_IP_PREFIX, Constants.FILTER_UPDATED_SINCE))
+        {
+            var value = ctx.request().getParam(filter);
+
+            if (value == null)
+            {
+                continue;
+            }
+
+            if (!listFilters().contains(filter))
+            {
+                ApiResponse.error(ctx, "Unsupported filter '" + filter + "' for " + moduleName, Constants.HTTP_BAD_REQUEST);
+
+                return null;
+            }
+
+            if (filter.equals(Constants.FILTER_UPDATED_SINCE))
+            {
+                var since = parseTimestamp(value);
+
+                if (since == null)
+                {
+                    ApiResponse.error(ctx, "Invalid '" + filter + "': expected ISO-8601 or epoch milliseconds", Constants.HTTP_BAD_REQUEST);
+
+                    return null;
+                }
+
+                filters.put(filter, since);
+            }
+            else
+            {
+                filters.put(filter, value);
+            }
+
+            key.append(key.isEmpty() ? "" : "&").append(filter).append('=').append(value);
+        }
+
+        return new ListQuery(columns, filters, key.toString());
+    }
+
+    private static OffsetDateTime parseTimestamp(String value)
+    {
+        try
+        {
+            return value.chars().allMatch(Character::isDigit)
+                    ? Instant.ofEpochMilli(Long.parseLong(value)).atOffset(ZoneOffset.UTC)
+                    : OffsetDateTime.parse(value);
+        }
+        catch (Exception exception)
+        {
+            return null;
+        }
+    }
+
+    private record ListQuery(List<String> columns, Map<String, Object> filters, String key)
+    {
+    }
+}
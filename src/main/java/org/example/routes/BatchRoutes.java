@@ -0,0 +1,406 @@
+package org.example.routes;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.SqlConnection;
+import org.example.constants.Constants;
+import org.example.db.DbQueryHelper;
+import org.example.db.TableVersions;
+import org.example.utils.ApiResponse;
+import org.example.utils.CompiledSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Runs many create, update and delete operations on credentials, discoveries and provisions in one request.
+ * <p>
+ * {@code POST /api/batch} takes {@code {"transaction": false, "operations": [{"module": "credential",
+ * "action": "create", "data": {...}}, {"module": "discovery", "action": "update", "id": 4, "data": {...}},
+ * {"module": "provision", "action": "delete", "id": 9}]}}. Provisions can only be deleted here, as creating
+ * one needs the discovery checks of the provision routes. Each operation is validated with its module's
+ * schema, then all of them are sent at once on one connection, which pipelines them. With
+ * {@code transaction} the batch is rejected if any operation is invalid, and is rolled back if any fails.
+ * The response lists the outcome of every operation in request order.
+ */
+public class BatchRoutes
+{
+    private static final Logger logger = LoggerFactory.getLogger(BatchRoutes.class);
+
+    private static final Set<String> ACTIONS = Set.of(Constants.CREATE, Constants.UPDATE, Constants.DELETE);
+
+    private final Pool pool;
+
+    private final int maxOperations;
+
+    private final Map<String, Target> targets;
+
+    public BatchRoutes(Pool pool, JsonObject config)
+    {
+        this.pool = pool;
+
+        this.maxOperations = config.getInteger(Constants.BATCH_MAX_OPERATIONS, Constants.DEFAULT_BATCH_MAX_OPERATIONS);
+
+        try
+        {
+            // The same compiled schemas the single-object routes use. Provisions are only created from a verified
+            // discovery (POST /api/provisions/:id or /bulk), so the batch may only delete them
+            this.targets = Map.of(
+                    Constants.CREDENTIAL_MODULE, new Target(Constants.CREDENTIAL_TABLE, CompiledSchema.load(Constants.CREDENTIAL_SCEHMA), ACTIONS),
+                    Constants.DISCOVERY_MODULE, new Target(Constants.DISCOVERY_TABLE, CompiledSchema.load(Constants.DISCOVERY_SCEHMA), ACTIONS),
+                    Constants.PROVISION_MODULE, new Target(Constants.PROVISION_TABLE, CompiledSchema.load(Constants.PROVISION_SCEHMA), Set.of(Constants.DELETE)));
+
+            logger.info("Initialized batch API for modules {}", targets.keySet());
+        }
+        catch (Exception exception)
+        {
+            logger.error("Failed to load JSON schemas for batch API: {}", exception.getMessage());
+
+            throw new RuntimeException("Schema initialization failed", exception);
+        }
+    }
+
+    /**
+     * Validates and runs a batch of operations.
+     *
+     * @param ctx the routing context containing the request.
+     */
+    private void batch(RoutingContext ctx)
+    {
+        try
+        {
+            var body = ctx.body().asJsonObject();
+
+            if (body == null || !(body.getValue(Constants.OPERATIONS) instanceof JsonArray operations) || operations.isEmpty())
+            {
+                ApiResponse.error(ctx, "'" + Constants.OPERATIONS + "' must be a non-empty array", Constants.HTTP_BAD_REQUEST);
+
+                return;
+            }
+
+            if (operations.size() > maxOperations)
+            {
+                ApiResponse.error(ctx, "A batch may contain at most " + maxOperations + " operations", Constants.HTTP_BAD_REQUEST);
+
+                return;
+            }
+
+            var transaction = Boolean.TRUE.equals(body.getValue(Constants.TRANSACTION));
+
+            var results = new JsonObject[operations.size()];
+
+            var valid = new ArrayList<Operation>();
+
+            for (var index = 0; index < operations.size(); index++)
+            {
+                var operation = operations.getValue(index);
+
+                var error = parse(index, operation, valid);
+
+                if (error != null)
+                {
+                    results[index] = result(index, operation, Constants.HTTP_BAD_REQUEST).put(Constants.ERROR, error);
+                }
+            }
+
+            if (transaction && valid.size() < operations.size())
+            {
+                var invalid = new JsonArray();
+
+                for (var result : results)
+                {
+                    if (result != null)
+                    {
+                        invalid.add(result);
+                    }
+                }
+
+                ApiResponse.error(ctx, "Batch rejected: " + invalid.size() + " invalid operations", invalid, Constants.HTTP_BAD_REQUEST);
+
+                return;
+            }
+
+            if (valid.isEmpty())
+            {
+                respond(ctx, results, transaction, false);
+
+                return;
+            }
+
+            execute(valid, results, transaction)
+                    .onComplete(outcome -> {
+
+                        afterWrite(valid);
+
+                        if (outcome.failed())
+                        {
+                            logger.error("Batch of {} operations failed: {}", valid.size(), outcome.cause().getMessage());
+                        }
+
+                        for (var operation : valid)
+                        {
+                            var result = results[operation.index()];
+
+                            if (result == null)
+                            {
+                                // The connection or the transaction failed before this operation ran
+                                results[operation.index()] = operation.result(Constants.HTTP_INTERNAL_SERVER_ERROR)
+                                        .put(Constants.ERROR, "Not executed");
+                            }
+                            else if (transaction && outcome.failed() && result.getInteger(Constants.STATUS) < Constants.HTTP_BAD_REQUEST)
+                            {
+                                results[operation.index()] = result.put(Constants.STATUS, Constants.HTTP_CONFLICT)
+                                        .put(Constants.ERROR, "Rolled back with the batch");
+                            }
+                        }
+
+                        respond(ctx, results, transaction, transaction && outcome.succeeded());
+                    });
+        }
+        catch (Exception exception)
+        {
+            logger.error("Failed to run batch: {}", exception.getMessage());
+
+            ApiResponse.error(ctx, "Failed to run batch", Constants.HTTP_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Sends every operation on one connection without waiting for the previous one, so they are pipelined.
+     *
+     * @param operations  The valid operations.
+     * @param results     The per-operation results, filled in as operations complete.
+     * @param transaction Whether to run the operations in one transaction.
+     * @return Future that fails if any operation failed; in a transaction, that rolls it back.
+     */
+    private Future<Void> execute(List<Operation> operations, JsonObject[] results, boolean transaction)
+    {
+        Function<SqlConnection, Future<Void>> run = connection -> {
+
+            var dbHelper = new DbQueryHelper(connection);
+
+            var pending = new ArrayList<Future<Integer>>();
+
+            for (var operation : operations)
+            {
+                pending.add(operation.run(dbHelper)
+                        .onSuccess(id -> results[operation.index()] = operation.result(operation.action().equals(Constants.CREATE) ? Constants.HTTP_CREATED : Constants.HTTP_OK)
+                                .put(Constants.FIELD_ID, id))
+                        .onFailure(err -> {
+                            logger.error("Failed to {} {}: {}", operation.action(), operation.module(), err.getMessage());
+
+                            results[operation.index()] = operation.result(Constants.HTTP_INTERNAL_SERVER_ERROR)
+                                    .put(Constants.ERROR, "Failed to " + operation.action() + " " + operation.module());
+                        }));
+            }
+
+            // Wait for every operation, not just the first failure, so each one has its own result
+            return Future.join(pending).mapEmpty();
+        };
+
+        return transaction ? pool.withTransaction(run) : pool.withConnection(run);
+    }
+
+    /**
+     * Moves the versions of the tables written on, naming the updated and deleted rows so only their cached
+     * copies are dropped. Repeats the bump done as each statement completed, as a transaction only becomes
+     * visible on commit.
+     *
+     * @param operations The operations that were run.
+     */
+    private static void afterWrite(List<Operation> operations)
+    {
+        var written = new HashMap<String, List<Integer>>();
+
+        for (var operation : operations)
+        {
+            var ids = written.computeIfAbsent(operation.target().table(), table -> new ArrayList<>());
+
+            if (operation.id() != null)
+            {
+                ids.add(operation.id());
+            }
+        }
+
+        written.forEach(TableVersions::bump);
+    }
+
+    /**
+     * Checks one operation and adds it to the list of valid ones.
+     *
+     * @param index     The position of the operation in the batch.
+     * @param operation The operation as sent.
+     * @param valid     The valid operations.
+     * @return The reason the operation is invalid, or null if it was added.
+     */
+    private String parse(int index, Object operation, List<Operation> valid)
+    {
+        if (!(operation instanceof JsonObject json))
+        {
+            return "Operation must be an object";
+        }
+
+        var module = json.getValue(Constants.MODULE) instanceof String name ? name : null;
+
+        var target = module == null ? null : targets.get(module);
+
+        if (target == null)
+        {
+            return "Unknown module '" + json.getValue(Constants.MODULE) + "'";
+        }
+
+        var action = json.getValue(Constants.ACTION) instanceof String name ? name : null;
+
+        if (action == null || !ACTIONS.contains(action))
+        {
+            return "Unknown action '" + json.getValue(Constants.ACTION) + "'";
+        }
+
+        if (!target.actions().contains(action))
+        {
+            return "Action '" + action + "' is not supported for " + module;
+        }
+
+        Integer id = null;
+
+        if (!action.equals(Constants.CREATE))
+        {
+            if (!(json.getValue(Constants.FIELD_ID) instanceof Integer value))
+            {
+                return "'" + Constants.FIELD_ID + "' is required for " + action;
+            }
+
+            id = value;
+        }
+
+        JsonObject data = null;
+
+        if (!action.equals(Constants.DELETE))
+        {
+            if (!(json.getValue(Constants.DATA) instanceof JsonObject value))
+            {
+                return "'" + Constants.DATA + "' is required for " + action;
+            }
+
+            var errors = target.schema().validate(value);
+
+            if (!errors.isEmpty())
+            {
+                return String.join("; ", errors);
+            }
+
+            data = value;
+        }
+
+        valid.add(new Operation(index, module, target, action, id, data));
+
+        return null;
+    }
+
+    private static JsonObject result(int index, Object operation, int status)
+    {
+        var result = new JsonObject().put(Constants.INDEX, index);
+
+        if (operation instanceof JsonObject json)
+        {
+            result.put(Constants.MODULE, json.getValue(Constants.MODULE))
+                    .put(Constants.ACTION, json.getValue(Constants.ACTION));
+        }
+
+        return result.put(Constants.STATUS, status);
+    }
+
+    private static void respond(RoutingContext ctx, JsonObject[] results, boolean transaction, boolean committed)
+    {
+        var succeeded = 0;
+
+        var list = new JsonArray();
+
+        for (var result : results)
+        {
+            if (result.getInteger(Constants.STATUS) < Constants.HTTP_BAD_REQUEST)
+            {
+                succeeded++;
+            }
+
+            list.add(result);
+        }
+
+        var data = new JsonObject()
+                .put(Constants.TRANSACTION, transaction)
+                .put(Constants.SUCCEEDED, succeeded)
+                .put(Constants.FAILED, results.length - succeeded)
+                .put(Constants.RESULTS, list);
+
+        if (transaction)
+        {
+            data.put(Constants.COMMITTED, committed);
+        }
+
+        ApiResponse.success(ctx, data, "batch processed", Constants.HTTP_OK);
+    }
+
+    /**
+     * Initializes the routes for the batch API.
+     *
+     * @param router the Vert.x Router to register the routes.
+     * @return the configured router.
+     */
+    public Router init(Router router)
+    {
+        router.post("/").handler(this::batch);
+
+        return router;
+    }
+
+    /**
+     * The table a module writes to, the schema its bodies must satisfy and the actions a batch may run on it.
+     */
+    private record Target(String table, CompiledSchema schema, Set<String> actions)
+    {
+    }
+
+    /**
+     * One validated operation of a batch.
+     *
+     * @param index  Position of the operation in the batch
+     * @param module The module name
+     * @param target The module's table and schema
+     * @param action create, update or delete
+     * @param id     The row ID for update and delete
+     * @param data   The validated body for create and update
+     */
+    private record Operation(int index, String module, Target target, String action, Integer id, JsonObject data)
+    {
+        private Future<Integer> run(DbQueryHelper dbHelper)
+        {
+            return switch (action)
+            {
+                case Constants.CREATE -> dbHelper.insertReturningId(target.table(), data);
+
+                case Constants.UPDATE -> dbHelper.update(target.table(), Constants.FIELD_ID, id, data).map(id);
+
+                default -> dbHelper.delete(target.table(), Constants.FIELD_ID, id).map(id);
+            };
+        }
+
+        private JsonObject result(int status)
+        {
+            return new JsonObject()
+                    .put(Constants.INDEX, index)
+                    .put(Constants.MODULE, module)
+                    .put(Constants.ACTION, action)
+                    .put(Constants.STATUS, status);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package org.example.routes;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.SqlClient;
+import io.vertx.sqlclient.Tuple;
+import org.example.constants.Constants;
+import org.example.db.DbQueryHelper;
+import org.example.utils.ApiResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Change feed over credentials, discoveries and provisions for clients that mirror the inventory.
+ * <p>
+ * {@code GET /api/changes?since=<cursor>&limit=<n>} returns the rows changed after the cursor, read from the
+ * {@code change_log} table that triggers on the three tables append to, together with the cursor to pass next.
+ * Several changes to one row within a page are reported once, with the row's current state.
+ */
+public class ChangeRoutes
+{
+    private static final Logger logger = LoggerFactory.getLogger(ChangeRoutes.class);
+
+    private static final Set<String> TRACKED_TABLES = Set.of(Constants.CREDENTIAL_TABLE, Constants.DISCOVERY_TABLE, Constants.PROVISION_TABLE);
+
+    private final DbQueryHelper dbHelper;
+
+    public ChangeRoutes(SqlClient client)
+    {
+        this.dbHelper = new DbQueryHelper(client);
+
+        logger.info("Initialized change feed API with table {}", Constants.CHANGE_LOG_TABLE);
+    }
+
+    /**
+     * Returns the changes after the given cursor.
+     *
+     * @param ctx the routing context containing the request.
+     */
+    private void changes(RoutingContext ctx)
+    {
+        try
+        {
+            var cursor = parseCursor(ctx.request().getParam(Constants.SINCE));
+
+            if (cursor == null)
+            {
+                ApiResponse.error(ctx, "Invalid '" + Constants.SINCE + "' cursor", Constants.HTTP_BAD_REQUEST);
+
+                return;
+            }
+
+            var limit = parseLimit(ctx.request().getParam(Constants.LIMIT));
+
+            if (limit == null)
+            {
+                ApiResponse.error(ctx, "'" + Constants.LIMIT + "' must be between 1 and " + Constants.MAX_CHANGES_LIMIT, Constants.HTTP_BAD_REQUEST);
+
+                return;
+            }
+
+            dbHelper.execute(Constants.SQL_SELECT_CHANGES, Tuple.of(cursor[0], cursor[1], limit))
+                    .compose(rows -> collect(rows, cursor, limit))
+                    .onSuccess(result -> ApiResponse.success(ctx, result, "changes fetched", Constants.HTTP_OK))
+                    .onFailure(err -> {
+                        logger.error("Failed to fetch changes: {}", err.getMessage());
+
+                        ApiResponse.error(ctx, "Failed to fetch changes", Constants.HTTP_INTERNAL_SERVER_ERROR);
+                    });
+        }
+        catch (Exception exception)
+        {
+            logger.error("Failed to fetch changes: {}", exception.getMessage());
+
+            ApiResponse.error(ctx, "Failed to fetch changes", Constants.HTTP_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Collapses the page to one change per row and attaches the current state of inserted and updated rows.
+     *
+     * @param rows   The change log entries in cursor order.
+     * @param cursor The cursor the page was read after.
+     * @param limit  The page size.
+     * @return Future with the changes, the next cursor and whether more changes are waiting.
+     */
+    private Future<JsonObject> collect(RowSet<Row> rows, long[] cursor, int limit)
+    {
+        var latest = new LinkedHashMap<String, JsonObject>();
+
+        var idsByTable = new HashMap<String, List<Integer>>();
+
+        var lastTxid = cursor[0];
+
+        var lastId = cursor[1];
+
+        for (var row : rows)
+        {
+            lastTxid = row.getLong("txid");
+
+            lastId = row.getLong(Constants.FIELD_ID);
+
+            var table = row.getString("table_name");
+
+            if (!TRACKED_TABLES.contains(table))
+            {
+                continue;
+            }
+
+            var rowId = row.getInteger("row_id");
+
+            var key = table + ":" + rowId;
+
+            var previous = latest.remove(key);
+
+            var operation = row.getString(Constants.OPERATION);
+
+            // The client has not seen a row inserted within this page, so a later update is still an insert for it
+            if (previous != null && Constants.INSERT.equals(previous.getString(Constants.OPERATION)) && !Constants.DELETE.equals(operation))
+            {
+                operation = Constants.INSERT;
+            }
+
+            latest.put(key, new JsonObject()
+                    .put(Constants.TABLE, table)
+                    .put(Constants.FIELD_ID, rowId)
+                    .put(Constants.OPERATION, operation));
+        }
+
+        for (var change : latest.values())
+        {
+            if (!Constants.DELETE.equals(change.getString(Constants.OPERATION)))
+            {
+                idsByTable.computeIfAbsent(change.getString(Constants.TABLE), table -> new ArrayList<>()).add(change.getInteger(Constants.FIELD_ID));
+            }
+        }
+
+        var nextCursor = lastTxid + ":" + lastId;
+
+        var hasMore = rows.size() == limit;
+
+        return fetchCurrentRows(idsByTable)
+                .map(current -> {
+
+                    var changes = new JsonArray();
+
+                    for (var change : latest.values())
+                    {
+                        if (!Constants.DELETE.equals(change.getString(Constants.OPERATION)))
+                        {
+                            var row = current.get(change.getString(Constants.TABLE) + ":" + change.getInteger(Constants.FIELD_ID));
+
+                            // Deleted after this page was logged; the delete follows in a later page
+                            if (row == null)
+                            {
+                                change.put(Constants.OPERATION, Constants.DELETE);
+                            }
+                            else
+                            {
+                                change.put(Constants.ROW, row);
+                            }
+                        }
+
+                        changes.add(change);
+                    }
+
+                    return new JsonObject()
+                            .put(Constants.CHANGES, changes)
+                            .put(Constants.CURSOR, nextCursor)
+                            .put(Constants.HAS_MORE, hasMore);
+                });
+    }
+
+    /**
+     * Reads the current rows for the given IDs, one query per table.
+     *
+     * @param idsByTable Row IDs keyed by table.
+     * @return Future with the rows keyed by {@code table:id}.
+     */
+    private Future<Map<String, JsonObject>> fetchCurrentRows(Map<String, List<Integer>> idsByTable)
+    {
+        var current = new HashMap<String, JsonObject>();
+
+        var fetches = new ArrayList<Future<Void>>();
+
+        for (var entry : idsByTable.entrySet())
+        {
+            var table = entry.getKey();
+
+            fetches.add(dbHelper.execute(String.format(Constants.SQL_SELECT_ROWS_BY_IDS, table), Tuple.of(entry.getValue().toArray(new Integer[0])))
+                    .map(rows -> {
+
+                        for (var row : rows)
+                        {
+                            var json = row.toJson();
+
+                            current.put(table + ":" + json.getInteger(Constants.FIELD_ID), json);
+                        }
+
+                        return null;
+                    }));
+        }
+
+        return Future.all(fetches).map(done -> current);
+    }
+
+    /**
+     * Parses a cursor of the form {@code <txid>:<id>}; a missing cursor starts from the beginning.
+     *
+     * @param since The cursor parameter.
+     * @return The transaction ID and log ID, or null if the cursor is malformed.
+     */
+    private static long[] parseCursor(String since)
+    {
+        if (since == null || since.isBlank() || since.equals("0"))
+        {
+            return new long[]{0, 0};
+        }
+
+        var parts = since.split(":");
+
+        if (parts.length != 2)
+        {
+            return null;
+        }
+
+        try
+        {
+            return new long[]{Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+        }
+        catch (NumberFormatException exception)
+        {
+            return null;
+        }
+    }
+
+    private static Integer parseLimit(String limit)
+    {
+        if (limit == null)
+        {
+            return Constants.DEFAULT_CHANGES_LIMIT;
+        }
+
+        try
+        {
+            var value = Integer.parseInt(limit);
+
+            return value >= 1 && value <= Constants.MAX_CHANGES_LIMIT ? value : null;
+        }
+        catch (NumberFormatException exception)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Initializes the routes for the change feed API.
+     *
+     * @param router the Vert.x Router to register the routes.
+     * @return the configured router.
+     */
+    public Router init(Router router)
+    {
+        router.get("/").handler(this::changes);
+
+        return router;
+    }
+}
@@ -3,22 +3,30 @@ package org.example.routes;
 import io.vertx.ext.web.Router;
 import io.vertx.sqlclient.SqlClient;
 import org.example.constants.Constants;
+import org.example.db.EntityCache;
+import org.example.utils.ListResponseCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Set;
+
 public class CredentialRoutes extends BaseApi
 {
 
     private static final Logger logger = LoggerFactory.getLogger(CredentialRoutes.class);
 
+    private static final Set<String> LIST_COLUMNS = Set.of(Constants.FIELD_ID, Constants.NAME, Constants.TYPE, Constants.ATTRIBUTES, Constants.CREATED_AT, Constants.UPDATED_AT);
+
+    private static final Set<String> LIST_FILTERS = Set.of(Constants.FILTER_UPDATED_SINCE);
+
     /**
      * Constructor to initialize CredentialRoutes with database client.
      *
      * @param client the SQL client for database operations.
      */
-    public CredentialRoutes(SqlClient client)
+    public CredentialRoutes(SqlClient client, EntityCache entityCache, ListResponseCache listCache)
     {
-        super(client, Constants.CREDENTIAL_TABLE, Constants.CREDENTIAL_MODULE, Constants.CREDENTIAL_SCEHMA);
+        super(client, Constants.CREDENTIAL_TABLE, Constants.CREDENTIAL_MODULE, Constants.CREDENTIAL_SCEHMA, entityCache, listCache);
 
         logger.info("Initialized Credential API with table {}", Constants.CREDENTIAL_TABLE);
     }
@@ -43,4 +51,16 @@ public class CredentialRoutes extends BaseApi
 
         return router;
     }
-}
\ No newline at end of file
+
+    @Override
+    protected Set<String> listColumns()
+    {
+        return LIST_COLUMNS;
+    }
+
+    @Override
+    protected Set<String> listFilters()
+    {
+        return LIST_FILTERS;
+    }
+}
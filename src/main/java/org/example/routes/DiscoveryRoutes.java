@@ -1,45 +1,84 @@
 package org.example.routes;
 
 import io.vertx.core.Future;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.ReplyException;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
 import io.vertx.sqlclient.SqlClient;
+import io.vertx.sqlclient.Tuple;
 import org.example.constants.Constants;
+import org.example.db.EntityCache;
+import org.example.engine.DiscoveryBatchRequest;
+import org.example.engine.DiscoveryBatchResult;
+import org.example.engine.DiscoveryEngine;
+import org.example.engine.DiscoveryRequest;
+import org.example.engine.DiscoveryResult;
+import org.example.engine.DiscoveryTarget;
 import org.example.utils.ApiResponse;
+import org.example.utils.ListResponseCache;
 import org.example.db.DbQueryHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
 
 public class DiscoveryRoutes extends BaseApi
 {
     private static final Logger logger = LoggerFactory.getLogger(DiscoveryRoutes.class);
 
+    private static final Set<String> LIST_COLUMNS = Set.of(Constants.FIELD_ID, Constants.NAME, Constants.IP, Constants.PORT, Constants.CREDENTIAL_IDS, Constants.STATUS,
+            Constants.IP_RANGE, Constants.PORTS, Constants.LAST_GOOD_CREDENTIAL_ID, Constants.CREATED_AT, Constants.UPDATED_AT);
+
+    private static final Set<String> LIST_FILTERS = Set.of(Constants.FILTER_STATUS, Constants.FILTER_IP_PREFIX, Constants.FILTER_UPDATED_SINCE);
+
     protected final DbQueryHelper dbHelper;
 
-    public DiscoveryRoutes(SqlClient client)
+    private final int bulkParallelism;
+
+    private final int bulkGroupSize;
+
+    private final long requestTimeoutMs;
+
+    private final long sweepTimeoutMs;
+
+    private final long busyBackoffMs;
+
+    public DiscoveryRoutes(SqlClient client, EntityCache entityCache, ListResponseCache listCache, JsonObject jobsConfig)
     {
-        super(client, Constants.DISCOVERY_TABLE, Constants.DISCOVERY_MODULE, Constants.DISCOVERY_SCEHMA);
+        super(client, Constants.DISCOVERY_TABLE, Constants.DISCOVERY_MODULE, Constants.DISCOVERY_SCEHMA, entityCache, listCache);
 
         this.dbHelper = new DbQueryHelper(client);
 
+        this.bulkParallelism = jobsConfig.getInteger(Constants.DISCOVERY_BULK_PARALLELISM, Constants.DEFAULT_DISCOVERY_BULK_PARALLELISM);
+
+        this.bulkGroupSize = jobsConfig.getInteger(Constants.DISCOVERY_BULK_GROUP_SIZE, Constants.DEFAULT_DISCOVERY_BULK_GROUP_SIZE);
+
+        this.requestTimeoutMs = jobsConfig.getLong(Constants.DISCOVERY_JOBS_TIMEOUT_MS, Constants.DEFAULT_DISCOVERY_JOBS_TIMEOUT_MS);
+
+        this.sweepTimeoutMs = jobsConfig.getLong(Constants.DISCOVERY_JOBS_SWEEP_TIMEOUT_MS, Constants.DEFAULT_DISCOVERY_JOBS_SWEEP_TIMEOUT_MS);
+
+        this.busyBackoffMs = jobsConfig.getLong(Constants.DISCOVERY_JOBS_BUSY_BACKOFF_MS, Constants.DEFAULT_DISCOVERY_JOBS_BUSY_BACKOFF_MS);
+
         logger.info("Initialized DiscoveryRoutes API with table {}", Constants.DISCOVERY_TABLE);
     }
 
 
     /**
-     * Initiates a discovery process for a specific discovery profile.
+     * Queues a discovery run for a specific discovery profile.
      * <p>
-     * This method performs the following steps:
-     * <ul>
-     *   <li>Extracts the discovery ID from the request path.</li>
-     *   <li>Fetches the corresponding discovery record from the database.</li>
-     *   <li>Parses the credential IDs and prepares a payload.</li>
-     *   <li>Sends the payload to the {@code DiscoveryEngine} via the event bus.</li>
-     *   <li>Handles success or failure response and sends appropriate API response.</li>
-     * </ul>
+     * The request returns {@code 202 Accepted} with a job ID straight away; the {@code DiscoveryJobWorker}
+     * picks the job up from the {@code discovery_jobs} table and its progress can be polled with
+     * {@code GET /api/discoveries/jobs/:jobId}.
      *
      * @param ctx the Vert.x {@link RoutingContext} containing the HTTP request context
      */
@@ -47,60 +86,473 @@ public class DiscoveryRoutes extends BaseApi
     {
         try
         {
-            var discoveryId = ctx.pathParam(FIELD_ID);
+            var id = parseId(ctx);
 
-            var id = Integer.parseInt(discoveryId);
+            if (id == null)
+            {
+                return;
+            }
 
-            // Fetch discovery profile
-            dbHelper.fetchOne(Constants.DISCOVERY_TABLE, FIELD_ID, id)
-                    .compose(discovery -> {
-                        logger.info(String.valueOf(discovery));
+            dbHelper.execute(Constants.SQL_ENQUEUE_DISCOVERY_JOB, Tuple.of(id))
+                    .onSuccess(rows -> {
 
-                        // Prepare payload for DiscoveryEngine
-                        var payload = new JsonObject()
-                                .put(Constants.REQUEST_TYPE, Constants.DISCOVERY)
-                                .put(Constants.DISCOVERY_ID, id)
-                                .put(Constants.IP, discovery.getString(Constants.IP))
-                                .put(Constants.PORT, discovery.getInteger(Constants.PORT, 22))
-                                .put(Constants.CREDENTIAL_IDS, discovery.getString(Constants.CREDENTIAL_IDS, "[]"));
+                        if (rows.rowCount() == 0)
+                        {
+                            ApiResponse.error(ctx, moduleName + " not found", Constants.HTTP_NOT_FOUND);
 
+                            return;
+                        }
 
-                        var credentialIdsStr = discovery.getString(Constants.CREDENTIAL_IDS, "[]");
+                        var job = rows.iterator().next().toJson();
 
-                        try
-                        {
-                            var credentialIdsArray = new JsonArray(credentialIdsStr);
+                        // Wake up the job worker instead of waiting for its next sweep
+                        ctx.vertx().eventBus().send(Constants.DISCOVERY_JOBS_ADDRESS, job.getLong(FIELD_ID));
 
-                            payload.put(Constants.CREDENTIAL_IDS, credentialIdsArray);
-                        }
-                        catch (Exception exception)
+                        ApiResponse.success(ctx, new JsonObject()
+                                .put(Constants.JOB_ID, job.getLong(FIELD_ID))
+                                .put(Constants.STATUS, job.getString(Constants.STATUS)), "Discovery queued", Constants.HTTP_ACCEPTED);
+                    })
+                    .onFailure(err -> {
+                        logger.error("Failed to queue discovery for id={}: {}", id, err.getMessage());
+
+                        ApiResponse.error(ctx, "Failed to queue discovery", Constants.HTTP_INTERNAL_SERVER_ERROR);
+                    });
+        }
+        catch (Exception exception)
+        {
+            logger.error("Run discovery failed : {}",  exception.getMessage());
+
+            ApiResponse.error(ctx, exception.getMessage(), Constants.HTTP_BAD_REQUEST);
+        }
+
+    }
+
+    /**
+     * Returns the status, and once finished the result, of a queued discovery job.
+     *
+     * @param ctx the Vert.x {@link RoutingContext} containing the job ID
+     */
+    public void getJob(RoutingContext ctx)
+    {
+        try
+        {
+            var jobIdParam = ctx.pathParam(Constants.JOB_ID);
+
+            long jobId;
+
+            try
+            {
+                jobId = Long.parseLong(jobIdParam);
+            }
+            catch (NumberFormatException exception)
+            {
+                ApiResponse.error(ctx, "Invalid ID format for '" + Constants.JOB_ID + "'", Constants.HTTP_BAD_REQUEST);
+
+                return;
+            }
+
+            dbHelper.execute(String.format(Constants.SQL_SELECT_ONE, Constants.DISCOVERY_JOB_TABLE, FIELD_ID), Tuple.of(jobId))
+                    .onSuccess(rows -> {
+
+                        if (rows.rowCount() == 0)
                         {
-                            logger.error("Failed to parse credential_ids for discovery id={}: {}", discoveryId, exception.getMessage());
+                            ApiResponse.error(ctx, "Discovery job not found", Constants.HTTP_NOT_FOUND);
 
-                            return Future.failedFuture("Invalid credential_ids format");
+                            return;
                         }
 
-                        // Send to event bus
-
-                        return ctx.vertx().eventBus().request(Constants.DISCOVERY_ADDRESS, payload)
-                                .map(message -> (JsonObject) message.body());
+                        ApiResponse.success(ctx, rows.iterator().next().toJson(), "Discovery job found", Constants.HTTP_OK);
                     })
+                    .onFailure(err -> {
+                        logger.error("Failed to fetch discovery job {}: {}", jobId, err.getMessage());
 
-                    .onSuccess(result -> ApiResponse.success(ctx, result,"", Constants.HTTP_OK))
+                        ApiResponse.error(ctx, "Failed to fetch discovery job", Constants.HTTP_INTERNAL_SERVER_ERROR);
+                    });
+        }
+        catch (Exception exception)
+        {
+            logger.error("Failed to fetch discovery job: {}", exception.getMessage());
 
+            ApiResponse.error(ctx, exception.getMessage(), Constants.HTTP_BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Runs many discovery profiles at once and streams per-profile results as Server-Sent Events.
+     * <p>
+     * The body selects profiles either by {@code ids} (array of discovery IDs) or by {@code filter}
+     * (currently only {@code status}; an empty filter selects every profile). Profiles sharing the
+     * same credential IDs are grouped into one plugin invocation, and at most {@code bulkParallelism}
+     * groups run at a time. Each profile produces a {@code result} event; a final {@code done} event
+     * carries the totals.
+     *
+     * @param ctx the Vert.x {@link RoutingContext} containing the HTTP request context
+     */
+    public void runBulk(RoutingContext ctx)
+    {
+        try
+        {
+            var body = ctx.body().asJsonObject();
+
+            if (body == null)
+            {
+                ApiResponse.error(ctx, "Request body cannot be null", Constants.HTTP_BAD_REQUEST);
+
+                return;
+            }
+
+            Future<RowSet<Row>> selection;
+
+            if (body.getValue(Constants.IDS) instanceof JsonArray idArray)
+            {
+                var ids = new Integer[idArray.size()];
+
+                for (var i = 0; i < idArray.size(); i++)
+                {
+                    if (!(idArray.getValue(i) instanceof Integer discoveryId))
+                    {
+                        ApiResponse.error(ctx, "ids must contain integers only", Constants.HTTP_BAD_REQUEST);
+
+                        return;
+                    }
+
+                    ids[i] = discoveryId;
+                }
+
+                selection = dbHelper.execute(Constants.SQL_SELECT_DISCOVERIES_BY_IDS, Tuple.of(ids));
+            }
+            else if (body.getValue(Constants.FILTER) instanceof JsonObject filter)
+            {
+                var status = filter.getString(Constants.STATUS);
+
+                selection = status == null
+                        ? dbHelper.execute(String.format(Constants.SQL_SELECT_ALL, Constants.DISCOVERY_TABLE), Tuple.tuple())
+                        : dbHelper.execute(Constants.SQL_SELECT_DISCOVERIES_BY_STATUS, Tuple.of(status));
+            }
+            else
+            {
+                ApiResponse.error(ctx, "Either ids or filter is required", Constants.HTTP_BAD_REQUEST);
+
+                return;
+            }
+
+            selection
+                    .onSuccess(rows -> {
+
+                        var invalid = new ArrayList<JsonObject>();
+
+                        var groups = groupByCredentials(rows, invalid);
+
+                        logger.info("Running bulk discovery for {} profiles in {} groups", rows.rowCount(), groups.size());
+
+                        ApiResponse.startEventStream(ctx);
+
+                        new BulkRun(ctx, groups, invalid, rows.rowCount()).start();
+                    })
                     .onFailure(err -> {
-                        logger.error("Run discovery failed for id={}: {}", discoveryId, err.getMessage());
+                        logger.error("Failed to select discoveries for bulk run: {}", err.getMessage());
 
-                        ApiResponse.error(ctx, err.getMessage(), Constants.HTTP_BAD_REQUEST);
+                        ApiResponse.error(ctx, "Failed to select discoveries", Constants.HTTP_INTERNAL_SERVER_ERROR);
                     });
         }
         catch (Exception exception)
         {
-            logger.error("Run discovery failed : {}",  exception.getMessage());
+            logger.error("Bulk discovery failed : {}", exception.getMessage());
 
             ApiResponse.error(ctx, exception.getMessage(), Constants.HTTP_BAD_REQUEST);
         }
+    }
+
+    /**
+     * Groups discovery profiles by their credential IDs and splits each group into chunks of at most
+     * {@code bulkGroupSize} targets, each chunk becoming one DiscoveryEngine batch request.
+     *
+     * @param rows    the selected discovery rows
+     * @param invalid receives a failed result for every profile that cannot be parsed into a request
+     * @return the requests to send, {@link DiscoveryBatchRequest}s and {@link DiscoveryRequest}s for range sweeps
+     */
+    private ArrayDeque<Object> groupByCredentials(RowSet<Row> rows, List<JsonObject> invalid)
+    {
+        var groups = new LinkedHashMap<String, Chunk>();
+
+        var ordered = new ArrayList<Object>();
+
+        for (var row : rows)
+        {
+            var discovery = row.toJson();
+
+            DiscoveryRequest request;
+
+            try
+            {
+                request = DiscoveryRequest.fromDiscovery(discovery);
+            }
+            catch (Exception exception)
+            {
+                logger.error("Failed to parse discovery id={}: {}", discovery.getInteger(FIELD_ID), exception.getMessage());
+
+                invalid.add(new JsonObject()
+                        .put(Constants.DISCOVERY_ID, discovery.getInteger(FIELD_ID))
+                        .put(Constants.STATUS, Constants.FAIL)
+                        .put(Constants.ERROR, "Invalid discovery profile: " + exception.getMessage()));
+
+                continue;
+            }
+
+            // Range sweeps already fan out inside the engine, so each one is sent on its own
+            if (request.isSweep())
+            {
+                ordered.add(request);
+
+                continue;
+            }
+
+            // Order does not matter to the plugin, so [2,1] and [1,2] share a group
+            var key = DiscoveryEngine.credentialKey(request.credentialIds());
+
+            var chunk = groups.get(key);
+
+            if (chunk == null || chunk.targets.size() >= bulkGroupSize)
+            {
+                chunk = new Chunk(request.credentialIds());
+
+                groups.put(key, chunk);
+
+                ordered.add(chunk);
+            }
+
+            chunk.targets.add(request.target());
+        }
+
+        var requests = new ArrayDeque<Object>(ordered.size());
 
+        for (var entry : ordered)
+        {
+            requests.add(entry instanceof Chunk chunk ? new DiscoveryBatchRequest(chunk.credentialIds, chunk.targets) : entry);
+        }
+
+        return requests;
+    }
+
+    /**
+     * Targets collected for one batch request while grouping
+     */
+    private static final class Chunk
+    {
+        private final List<Integer> credentialIds;
+
+        private final List<DiscoveryTarget> targets = new ArrayList<>();
+
+        private Chunk(List<Integer> credentialIds)
+        {
+            this.credentialIds = credentialIds;
+        }
+    }
+
+    /**
+     * State of one bulk discovery stream: the groups still to send, how many are running and the totals
+     */
+    private class BulkRun
+    {
+        private final RoutingContext ctx;
+
+        private final ArrayDeque<Object> pending;
+
+        private final List<JsonObject> invalid;
+
+        private final int total;
+
+        private int active = 0;
+
+        private int up = 0;
+
+        private int down = 0;
+
+        private BulkRun(RoutingContext ctx, ArrayDeque<Object> pending, List<JsonObject> invalid, int total)
+        {
+            this.ctx = ctx;
+
+            this.pending = pending;
+
+            this.invalid = invalid;
+
+            this.total = total;
+        }
+
+        private void start()
+        {
+            // Profiles that could not be parsed still count towards the total, so report them first
+            for (var result : invalid)
+            {
+                emit(result, null);
+            }
+
+            if (pending.isEmpty())
+            {
+                finish();
+
+                return;
+            }
+
+            for (var i = 0; i < bulkParallelism && !pending.isEmpty(); i++)
+            {
+                next();
+            }
+        }
+
+        private void next()
+        {
+            // Stop fanning out once the client has disconnected; running groups still complete
+            if (ctx.response().closed())
+            {
+                pending.clear();
+            }
+
+            var request = pending.poll();
+
+            if (request == null)
+            {
+                if (active == 0)
+                {
+                    finish();
+                }
+
+                return;
+            }
+
+            active++;
+
+            if (request instanceof DiscoveryRequest sweep)
+            {
+                sweep(sweep);
+
+                return;
+            }
+
+            var batch = (DiscoveryBatchRequest) request;
+
+            var targets = batch.targets();
+
+            ctx.vertx().eventBus()
+                    .<DiscoveryBatchResult>request(Constants.DISCOVERY_BATCH_ADDRESS, batch, new DeliveryOptions().setSendTimeout(requestTimeoutMs))
+                    .map(message -> message.body().results())
+                    .onComplete(result -> {
+
+                        active--;
+
+                        if (result.failed() && retryIfBusy(batch, result.cause()))
+                        {
+                            return;
+                        }
+
+                        if (result.succeeded())
+                        {
+                            for (var targetResult : result.result())
+                            {
+                                emit(targetResult.toJson(), null);
+                            }
+                        }
+                        else
+                        {
+                            logger.error("Bulk discovery group of {} targets failed: {}", targets.size(), result.cause().getMessage());
+
+                            for (var target : targets)
+                            {
+                                emit(target.toJson().put(Constants.STATUS, Constants.FAIL), result.cause().getMessage());
+                            }
+                        }
+
+                        next();
+                    });
+        }
+
+        private void sweep(DiscoveryRequest payload)
+        {
+            ctx.vertx().eventBus()
+                    .<DiscoveryResult>request(Constants.DISCOVERY_ADDRESS, payload, new DeliveryOptions().setSendTimeout(sweepTimeoutMs))
+                    .onComplete(result -> {
+
+                        active--;
+
+                        if (result.failed() && retryIfBusy(payload, result.cause()))
+                        {
+                            return;
+                        }
+
+                        if (result.succeeded())
+                        {
+                            emit(result.result().body().toJson(), null);
+                        }
+                        else
+                        {
+                            logger.error("Bulk sweep of discovery id={} failed: {}", payload.discoveryId(), result.cause().getMessage());
+
+                            emit(new JsonObject()
+                                    .put(Constants.DISCOVERY_ID, payload.discoveryId())
+                                    .put(Constants.IP_RANGE, payload.ipRange())
+                                    .put(Constants.STATUS, Constants.FAIL), result.cause().getMessage());
+                        }
+
+                        next();
+                    });
+        }
+
+        /**
+         * Puts a request the engines were too busy to take back in front of the queue and retries it after a pause
+         */
+        private boolean retryIfBusy(Object request, Throwable cause)
+        {
+            if (!(cause instanceof ReplyException reply) || reply.failureCode() != Constants.HTTP_SERVICE_UNAVAILABLE)
+            {
+                return false;
+            }
+
+            pending.addFirst(request);
+
+            active++;
+
+            // Holding the slot keeps finish() from running while the retry waits
+            ctx.vertx().setTimer(busyBackoffMs, id -> {
+
+                active--;
+
+                next();
+            });
+
+            return true;
+        }
+
+        private void emit(JsonObject result, String error)
+        {
+            if (Constants.SUCCESS.equals(result.getString(Constants.STATUS)))
+            {
+                up++;
+            }
+            else
+            {
+                down++;
+            }
+
+            if (error != null)
+            {
+                result.put(Constants.ERROR, error);
+            }
+
+            ApiResponse.sendEvent(ctx, Constants.RESULT, result);
+        }
+
+        private void finish()
+        {
+            ApiResponse.sendEvent(ctx, Constants.DONE, new JsonObject()
+                    .put(Constants.TOTAL, total)
+                    .put(Constants.UP, up)
+                    .put(Constants.DOWN, down));
+
+            if (!ctx.response().closed() && !ctx.response().ended())
+            {
+                ctx.response().end();
+            }
+        }
     }
 
     /**
@@ -118,10 +570,26 @@ public class DiscoveryRoutes extends BaseApi
 
         router.delete("/:id").handler(this::delete);
 
+        router.get("/jobs/:jobId").handler(this::getJob);
+
         router.get("/:id").handler(this::findOne);
 
+        router.post("/run").handler(this::runBulk);
+
         router.post("/:id").handler(this::runDiscovery);
 
         return router;
     }
+
+    @Override
+    protected Set<String> listColumns()
+    {
+        return LIST_COLUMNS;
+    }
+
+    @Override
+    protected Set<String> listFilters()
+    {
+        return LIST_FILTERS;
+    }
 }
@@ -0,0 +1,434 @@
+package org.example.routes;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import org.example.constants.Constants;
+import org.example.engine.MetricSample;
+import org.example.utils.ApiResponse;
+import org.example.utils.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+/**
+ * Pushes metric samples to clients as the polling engine ingests them.
+ * <p>
+ * {@code GET /api/live/metrics} is a Server-Sent Events stream and {@code GET /api/live/ws} a WebSocket.
+ * Both take {@code ids} (comma-separated provision IDs) and {@code ip_prefix} to choose the devices; the
+ * event stream sends every sample when neither is given. WebSocket clients can change their subscription
+ * with text messages such as {@code {"subscribe":[1,2], "unsubscribe":[3], "ip_prefix":"10.0.", "all":false}}.
+ * <p>
+ * Each connection keeps at most {@code maxPendingPerConnection} unsent samples, one per provision: a newer
+ * sample replaces an unsent older one and the oldest is dropped when the buffer is full, so a slow client
+ * only ever misses stale samples. One consumer per server instance fans samples out on its event loop.
+ */
+public class LiveMetricsRoutes
+{
+    private static final Logger logger = LoggerFactory.getLogger(LiveMetricsRoutes.class);
+
+    private static final String METRIC_DELIVERED = "live.delivered";
+
+    private static final String METRIC_DROPPED = "live.dropped";
+
+    private static final String METRIC_SUBSCRIBERS = "live.subscribers";
+
+    private final Vertx vertx;
+
+    private final int maxPending;
+
+    private final long heartbeatMs;
+
+    // Only touched on the event loop of the server instance that owns these routes
+    private final Set<Subscriber> subscribers = new HashSet<>();
+
+    public LiveMetricsRoutes(Vertx vertx, JsonObject config)
+    {
+        this.vertx = vertx;
+
+        this.maxPending = Math.max(1, config.getInteger(Constants.LIVE_MAX_PENDING, Constants.DEFAULT_LIVE_MAX_PENDING));
+
+        this.heartbeatMs = config.getLong(Constants.LIVE_HEARTBEAT_MS, Constants.DEFAULT_LIVE_HEARTBEAT_MS);
+    }
+
+    /**
+     * Hands a sample to every subscriber interested in it, encoding it once.
+     *
+     * @param message The event bus message carrying the sample.
+     */
+    private void publish(Message<MetricSample> message)
+    {
+        if (subscribers.isEmpty())
+        {
+            return;
+        }
+
+        var sample = message.body();
+
+        String json = null;
+
+        for (var subscriber : subscribers)
+        {
+            if (subscriber.accepts(sample))
+            {
+                if (json == null)
+                {
+                    json = sample.toJson().encode();
+                }
+
+                subscriber.offer(sample.provisionId(), json);
+            }
+        }
+    }
+
+    /**
+     * Streams samples as Server-Sent Events.
+     *
+     * @param ctx the routing context containing the request.
+     */
+    private void stream(RoutingContext ctx)
+    {
+        var ids = parseIds(ctx.request().getParam(Constants.IDS));
+
+        if (ids == null)
+        {
+            ApiResponse.error(ctx, "'" + Constants.IDS + "' must be a comma-separated list of provision IDs", Constants.HTTP_BAD_REQUEST);
+
+            return;
+        }
+
+        var ipPrefix = ctx.request().getParam(Constants.FILTER_IP_PREFIX);
+
+        ApiResponse.startEventStream(ctx);
+
+        var subscriber = new Subscriber(new SseSink(ctx.response()));
+
+        subscriber.ids.addAll(ids);
+
+        subscriber.ipPrefix = ipPrefix;
+
+        subscriber.all = ids.isEmpty() && ipPrefix == null;
+
+        register(subscriber);
+
+        ctx.response().closeHandler(v -> unregister(subscriber));
+    }
+
+    /**
+     * Upgrades the request to a WebSocket that streams samples as text messages.
+     *
+     * @param ctx the routing context containing the request.
+     */
+    private void socket(RoutingContext ctx)
+    {
+        var ids = parseIds(ctx.request().getParam(Constants.IDS));
+
+        if (ids == null)
+        {
+            ApiResponse.error(ctx, "'" + Constants.IDS + "' must be a comma-separated list of provision IDs", Constants.HTTP_BAD_REQUEST);
+
+            return;
+        }
+
+        var ipPrefix = ctx.request().getParam(Constants.FILTER_IP_PREFIX);
+
+        ctx.request().toWebSocket()
+                .onSuccess(socket -> {
+
+                    var subscriber = new Subscriber(new WebSocketSink(socket));
+
+                    subscriber.ids.addAll(ids);
+
+                    subscriber.ipPrefix = ipPrefix;
+
+                    register(subscriber);
+
+                    socket.textMessageHandler(text -> command(subscriber, socket, text));
+
+                    socket.closeHandler(v -> unregister(subscriber));
+                })
+                .onFailure(err -> {
+                    logger.warn("WebSocket upgrade failed: {}", err.getMessage());
+
+                    if (!ctx.response().ended())
+                    {
+                        ApiResponse.error(ctx, "Expected a WebSocket upgrade request", Constants.HTTP_BAD_REQUEST);
+                    }
+                });
+    }
+
+    /**
+     * Applies a subscription change sent by a WebSocket client and replies with the resulting subscription.
+     *
+     * @param subscriber The client's subscriber.
+     * @param socket     The client's socket.
+     * @param text       The message received.
+     */
+    private static void command(Subscriber subscriber, ServerWebSocket socket, String text)
+    {
+        try
+        {
+            var command = new JsonObject(text);
+
+            var subscribe = command.getJsonArray(Constants.SUBSCRIBE, new JsonArray());
+
+            var unsubscribe = command.getJsonArray(Constants.UNSUBSCRIBE, new JsonArray());
+
+            for (var i = 0; i < subscribe.size(); i++)
+            {
+                subscriber.ids.add(subscribe.getInteger(i));
+            }
+
+            for (var i = 0; i < unsubscribe.size(); i++)
+            {
+                var id = unsubscribe.getInteger(i);
+
+                subscriber.ids.remove(id);
+
+                // Samples already waiting for this provision are no longer wanted
+                subscriber.pending.remove(id);
+            }
+
+            if (command.containsKey(Constants.FILTER_IP_PREFIX))
+            {
+                subscriber.ipPrefix = command.getString(Constants.FILTER_IP_PREFIX);
+            }
+
+            subscriber.all = command.getBoolean(Constants.ALL, subscriber.all);
+
+            socket.writeTextMessage(new JsonObject()
+                    .put(Constants.SUBSCRIBE, new JsonObject()
+                            .put(Constants.IDS, new JsonArray(subscriber.ids.stream().toList()))
+                            .put(Constants.FILTER_IP_PREFIX, subscriber.ipPrefix)
+                            .put(Constants.ALL, subscriber.all))
+                    .encode());
+        }
+        catch (Exception exception)
+        {
+            socket.writeTextMessage(new JsonObject().put(Constants.ERROR, "Invalid subscription message: " + exception.getMessage()).encode());
+        }
+    }
+
+    private void register(Subscriber subscriber)
+    {
+        subscribers.add(subscriber);
+
+        subscriber.heartbeatTimer = vertx.setPeriodic(heartbeatMs, id -> subscriber.sink.heartbeat());
+
+        Metrics.add(METRIC_SUBSCRIBERS, 1);
+    }
+
+    private void unregister(Subscriber subscriber)
+    {
+        if (subscribers.remove(subscriber))
+        {
+            vertx.cancelTimer(subscriber.heartbeatTimer);
+
+            subscriber.pending.clear();
+
+            Metrics.add(METRIC_SUBSCRIBERS, -1);
+        }
+    }
+
+    /**
+     * Parses a comma-separated list of provision IDs.
+     *
+     * @param ids The parameter value.
+     * @return The IDs, empty if the parameter is missing, or null if it is malformed.
+     */
+    private static Set<Integer> parseIds(String ids)
+    {
+        var parsed = new HashSet<Integer>();
+
+        if (ids == null || ids.isBlank())
+        {
+            return parsed;
+        }
+
+        try
+        {
+            for (var id : ids.split(","))
+            {
+                parsed.add(Integer.parseInt(id.trim()));
+            }
+
+            return parsed;
+        }
+        catch (NumberFormatException exception)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Initializes the routes for the live metrics API and starts listening for samples.
+     *
+     * @param router the Vert.x Router to register the routes.
+     * @return the configured router.
+     */
+    public Router init(Router router)
+    {
+        vertx.eventBus().<MetricSample>localConsumer(Constants.LIVE_METRICS_ADDRESS, this::publish);
+
+        router.get("/metrics").handler(this::stream);
+
+        router.get("/ws").handler(this::socket);
+
+        return router;
+    }
+
+    /**
+     * One connected client, its subscription and the samples not yet written to it.
+     */
+    private final class Subscriber
+    {
+        private final Sink sink;
+
+        private final Set<Integer> ids = new HashSet<>();
+
+        private String ipPrefix;
+
+        private boolean all;
+
+        // Latest unsent sample per provision, oldest first
+        private final LinkedHashMap<Integer, String> pending = new LinkedHashMap<>();
+
+        private long heartbeatTimer;
+
+        private Subscriber(Sink sink)
+        {
+            this.sink = sink;
+        }
+
+        private boolean accepts(MetricSample sample)
+        {
+            return all
+                    || ids.contains(sample.provisionId())
+                    || (ipPrefix != null && sample.ip() != null && sample.ip().startsWith(ipPrefix));
+        }
+
+        private void offer(Integer provisionId, String json)
+        {
+            // An unsent sample for the same provision is stale now
+            if (pending.remove(provisionId) != null)
+            {
+                Metrics.increment(METRIC_DROPPED);
+            }
+
+            pending.put(provisionId, json);
+
+            if (pending.size() > maxPending)
+            {
+                pending.remove(pending.keySet().iterator().next());
+
+                Metrics.increment(METRIC_DROPPED);
+            }
+
+            flush();
+        }
+
+        private void flush()
+        {
+            var iterator = pending.values().iterator();
+
+            while (iterator.hasNext() && !sink.writeQueueFull())
+            {
+                sink.write(iterator.next());
+
+                iterator.remove();
+
+                Metrics.increment(METRIC_DELIVERED);
+            }
+
+            if (!pending.isEmpty())
+            {
+                sink.drainHandler(v -> flush());
+            }
+        }
+    }
+
+    /**
+     * The connection a subscriber's samples are written to.
+     */
+    private interface Sink
+    {
+        void write(String json);
+
+        boolean writeQueueFull();
+
+        void drainHandler(Handler<Void> handler);
+
+        void heartbeat();
+    }
+
+    private record SseSink(HttpServerResponse response) implements Sink
+    {
+        @Override
+        public void write(String json)
+        {
+            response.write("event: " + Constants.METRIC + "\ndata: " + json + "\n\n");
+        }
+
+        @Override
+        public boolean writeQueueFull()
+        {
+            return response.closed() || response.writeQueueFull();
+        }
+
+        @Override
+        public void drainHandler(Handler<Void> handler)
+        {
+            response.drainHandler(handler);
+        }
+
+        @Override
+        public void heartbeat()
+        {
+            // A comment line keeps proxies from closing an idle stream
+            if (!writeQueueFull())
+            {
+                response.write(": keepalive\n\n");
+            }
+        }
+    }
+
+    private record WebSocketSink(ServerWebSocket socket) implements Sink
+    {
+        @Override
+        public void write(String json)
+        {
+            socket.writeTextMessage(json);
+        }
+
+        @Override
+        public boolean writeQueueFull()
+        {
+            return socket.isClosed() || socket.writeQueueFull();
+        }
+
+        @Override
+        public void drainHandler(Handler<Void> handler)
+        {
+            socket.drainHandler(handler);
+        }
+
+        @Override
+        public void heartbeat()
+        {
+            if (!writeQueueFull())
+            {
+                socket.writePing(Buffer.buffer());
+            }
+        }
+    }
+}
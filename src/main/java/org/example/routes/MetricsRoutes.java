@@ -0,0 +1,33 @@
+package org.example.routes;
+
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import org.example.constants.Constants;
+import org.example.utils.ApiResponse;
+import org.example.utils.Metrics;
+
+public class MetricsRoutes
+{
+    /**
+     * Returns a snapshot of the in-process engine and API metrics.
+     *
+     * @param ctx the routing context containing the request.
+     */
+    private void snapshot(RoutingContext ctx)
+    {
+        ApiResponse.success(ctx, Metrics.snapshot(), "metrics fetched", Constants.HTTP_OK);
+    }
+
+    /**
+     * Initializes the routes for the metrics API.
+     *
+     * @param router the Vert.x Router to register the routes.
+     * @return the configured router.
+     */
+    public Router init(Router router)
+    {
+        router.get("/").handler(this::snapshot);
+
+        return router;
+    }
+}
@@ -5,24 +5,37 @@ import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
+import io.vertx.pgclient.PgException;
 import io.vertx.sqlclient.SqlClient;
 import io.vertx.sqlclient.Tuple;
 import org.example.constants.Constants;
+import org.example.db.EntityCache;
+import org.example.db.TableVersions;
 import org.example.utils.ApiResponse;
+import org.example.utils.ListResponseCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
 public class ProvisionRoutes extends BaseApi
 {
     private static final Logger logger = LoggerFactory.getLogger(ProvisionRoutes.class);
 
-    private static SqlClient client;
+    private static final Set<String> LIST_COLUMNS = Set.of(Constants.FIELD_ID, Constants.IP, Constants.PORT, Constants.CREDENTIAL_IDS, Constants.POLL_INTERVAL_MS,
+            Constants.LAST_GOOD_CREDENTIAL_ID, Constants.CREATED_AT, Constants.UPDATED_AT);
+
+    private static final Set<String> LIST_FILTERS = Set.of(Constants.FILTER_IP_PREFIX, Constants.FILTER_UPDATED_SINCE);
+
+    private final SqlClient client;
 
-    public ProvisionRoutes(SqlClient client)
+    public ProvisionRoutes(SqlClient client, EntityCache entityCache, ListResponseCache listCache)
     {
-        super(client, Constants.PROVISION_TABLE, Constants.PROVISION_MODULE, Constants.PROVISION_SCEHMA);
+        super(client, Constants.PROVISION_TABLE, Constants.PROVISION_MODULE, Constants.PROVISION_SCEHMA, entityCache, listCache);
 
-        ProvisionRoutes.client = client;
+        this.client = client;
 
         logger.info("Initialized ProvisionRoutes API with table {}", Constants.PROVISION_TABLE);
 
@@ -41,8 +54,12 @@ public class ProvisionRoutes extends BaseApi
 
         router.delete("/:id").handler(this::delete);
 
+        router.post("/bulk").handler(this::bulkProvision);
+
         router.post("/:id").handler(this::startProvision);
 
+        router.put("/:id/interval").handler(this::updateInterval);
+
         return router;
     }
 
@@ -62,14 +79,34 @@ public class ProvisionRoutes extends BaseApi
                 return;
             }
 
+            var pollInterval = parsePollInterval(ctx, false);
+
+            if (pollInterval != null && pollInterval < 0)
+            {
+                return;
+            }
+
             // Verify discovery ID exists and is valid, then create provision
             verifyDiscoveryAndProvision(discoveryId)
                     .onSuccess(provisionData ->
                     {
+                        if (pollInterval != null)
+                        {
+                            provisionData.put(Constants.POLL_INTERVAL_MS, pollInterval);
+                        }
+
                         // Insert provision record
                         dbHelper.insert(Constants.PROVISION_TABLE, provisionData)
                                 .onSuccess(res -> ApiResponse.success(ctx, provisionData, "Device provisioning started", 201))
                                 .onFailure(err -> {
+                                    // Another request provisioned the same IP between the check and the insert
+                                    if (err instanceof PgException pgException && Constants.SQL_STATE_UNIQUE_VIOLATION.equals(pgException.getSqlState()))
+                                    {
+                                        ApiResponse.error(ctx, "Device with IP " + provisionData.getString(Constants.IP) + " is already provisioned", Constants.HTTP_BAD_REQUEST);
+
+                                        return;
+                                    }
+
                                     logger.error("Failed to create provision entry: {}", err.getMessage());
                                     ApiResponse.error(ctx, "Failed to start provisioning", Constants.HTTP_INTERNAL_SERVER_ERROR);
                                 });
@@ -89,6 +126,242 @@ public class ProvisionRoutes extends BaseApi
 
     }
 
+    /**
+     * Provisions many discovered devices with one statement. Discoveries that are missing, still pending,
+     * ranges, or whose device is already provisioned are reported and skipped rather than failing the request.
+     *
+     * @param ctx the routing context containing the discovery IDs and an optional polling interval
+     */
+    private void bulkProvision(RoutingContext ctx)
+    {
+        try
+        {
+            var body = ctx.body().asJsonObject();
+
+            if (body == null || !(body.getValue(Constants.IDS) instanceof JsonArray idArray) || idArray.isEmpty())
+            {
+                ApiResponse.error(ctx, Constants.IDS + " must be a non-empty array", Constants.HTTP_BAD_REQUEST);
+
+                return;
+            }
+
+            if (idArray.size() > Constants.MAX_BULK_PROVISIONS)
+            {
+                ApiResponse.error(ctx, "At most " + Constants.MAX_BULK_PROVISIONS + " discoveries can be provisioned at once", Constants.HTTP_BAD_REQUEST);
+
+                return;
+            }
+
+            var ids = new Integer[idArray.size()];
+
+            for (var i = 0; i < idArray.size(); i++)
+            {
+                if (!(idArray.getValue(i) instanceof Integer discoveryId))
+                {
+                    ApiResponse.error(ctx, "ids must contain integers only", Constants.HTTP_BAD_REQUEST);
+
+                    return;
+                }
+
+                ids[i] = discoveryId;
+            }
+
+            var pollInterval = parsePollInterval(ctx, false);
+
+            if (pollInterval != null && pollInterval < 0)
+            {
+                return;
+            }
+
+            dbHelper.execute(Constants.SQL_PROVISION_DISCOVERIES, Tuple.of(ids, pollInterval))
+                    .onComplete(result -> TableVersions.bump(Constants.PROVISION_TABLE))
+                    .onSuccess(rows -> {
+
+                        var found = new HashMap<Integer, JsonObject>();
+
+                        // The discovery each device was provisioned from, to explain why other discoveries of it were skipped
+                        var provisionedBy = new HashMap<String, Integer>();
+
+                        for (var row : rows)
+                        {
+                            if (row.getInteger(Constants.PROVISION_ID_COLUMN) != null)
+                            {
+                                provisionedBy.put(row.getString(Constants.IP), row.getInteger(Constants.DISCOVERY_ID));
+                            }
+                        }
+
+                        for (var row : rows)
+                        {
+                            var discoveryId = row.getInteger(Constants.DISCOVERY_ID);
+
+                            var provisionId = row.getInteger(Constants.PROVISION_ID_COLUMN);
+
+                            var ip = row.getString(Constants.IP);
+
+                            var result = new JsonObject().put(Constants.DISCOVERY_ID, discoveryId);
+
+                            if (provisionId != null)
+                            {
+                                result.put(Constants.PROVISION_ID_COLUMN, provisionId).put(Constants.IP, ip);
+                            }
+                            else
+                            {
+                                result.put(Constants.ERROR, skipReason(ip, row.getString(Constants.STATUS), provisionedBy.get(ip)));
+                            }
+
+                            found.put(discoveryId, result);
+                        }
+
+                        var provisioned = provisionedBy.size();
+
+                        var results = new JsonArray();
+
+                        for (var discoveryId : ids)
+                        {
+                            results.add(found.getOrDefault(discoveryId, new JsonObject()
+                                    .put(Constants.DISCOVERY_ID, discoveryId)
+                                    .put(Constants.ERROR, "Discovery ID not found")));
+                        }
+
+                        ApiResponse.success(ctx, new JsonObject()
+                                        .put(Constants.PROVISIONED, provisioned)
+                                        .put(Constants.RESULTS, results),
+                                provisioned + " devices provisioned", provisioned > 0 ? Constants.HTTP_CREATED : Constants.HTTP_OK);
+                    })
+                    .onFailure(err -> {
+                        logger.error("Failed to provision {} discoveries: {}", ids.length, err.getMessage());
+
+                        ApiResponse.error(ctx, "Failed to start provisioning", Constants.HTTP_INTERNAL_SERVER_ERROR);
+                    });
+        }
+        catch (Exception exception)
+        {
+            logger.error("Bulk provisioning failed: {}", exception.getMessage());
+
+            ApiResponse.error(ctx, exception.getMessage(), Constants.HTTP_BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Explains why an existing discovery was not provisioned, with the messages of the single-device route.
+     *
+     * @param ip            The discovery's IP
+     * @param status        The discovery's status
+     * @param provisionedBy The discovery in the same request the device was provisioned from, if any
+     */
+    private static String skipReason(String ip, String status, Integer provisionedBy)
+    {
+        if (status == null || status.equals(Constants.PENDING))
+        {
+            return "Discovery is still pending or in invalid state";
+        }
+
+        if (ip == null)
+        {
+            return "Range discoveries cannot be provisioned directly";
+        }
+
+        if (provisionedBy != null)
+        {
+            return "Device with IP " + ip + " is provisioned from discovery " + provisionedBy + " in this request";
+        }
+
+        return "Device with IP " + ip + " is already provisioned";
+    }
+
+    /**
+     * Changes the polling interval of a provisioned device. A null interval resets it to the engine default.
+     *
+     * @param ctx the routing context containing the provision ID and the new interval
+     */
+    private void updateInterval(RoutingContext ctx)
+    {
+        try
+        {
+            var id = parseId(ctx);
+
+            if (id == null)
+            {
+                return;
+            }
+
+            var pollInterval = parsePollInterval(ctx, true);
+
+            if (pollInterval != null && pollInterval < 0)
+            {
+                return;
+            }
+
+            var query = String.format("UPDATE %s SET %s = $1, updated_at = CURRENT_TIMESTAMP WHERE %s = $2",
+                    Constants.PROVISION_TABLE, Constants.POLL_INTERVAL_MS, Constants.FIELD_ID);
+
+            client.preparedQuery(query)
+                    .execute(Tuple.of(pollInterval, id))
+                    .onComplete(result -> TableVersions.bump(Constants.PROVISION_TABLE, List.of(id)))
+                    .onSuccess(rows -> {
+                        if (rows.rowCount() == 0)
+                        {
+                            ApiResponse.error(ctx, moduleName + " not found", Constants.HTTP_NOT_FOUND);
+
+                            return;
+                        }
+
+                        ApiResponse.success(ctx, null, "Polling interval updated", Constants.HTTP_OK);
+                    })
+                    .onFailure(err -> {
+                        logger.error("Failed to update polling interval for provision {}: {}", id, err.getMessage());
+
+                        ApiResponse.error(ctx, "Failed to update polling interval", Constants.HTTP_INTERNAL_SERVER_ERROR);
+                    });
+        }
+        catch (Exception exception)
+        {
+            logger.error("Failed to update polling interval: {}", exception.getMessage());
+
+            ApiResponse.error(ctx, exception.getMessage(), Constants.HTTP_BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Reads the optional {@code poll_interval_ms} field from the request body.
+     *
+     * @param ctx      the routing context containing the request body
+     * @param required whether the body must contain the field (it may still be null)
+     * @return the interval, null when absent or null, or -1 after an error response has been sent
+     */
+    private Integer parsePollInterval(RoutingContext ctx, boolean required)
+    {
+        var body = ctx.body().asJsonObject();
+
+        if (body == null || !body.containsKey(Constants.POLL_INTERVAL_MS))
+        {
+            if (required)
+            {
+                ApiResponse.error(ctx, Constants.POLL_INTERVAL_MS + " is required", Constants.HTTP_BAD_REQUEST);
+
+                return -1;
+            }
+
+            return null;
+        }
+
+        var value = body.getValue(Constants.POLL_INTERVAL_MS);
+
+        if (value == null)
+        {
+            return null;
+        }
+
+        if (!(value instanceof Integer interval) || interval < Constants.MIN_POLL_INTERVAL_MS)
+        {
+            ApiResponse.error(ctx, Constants.POLL_INTERVAL_MS + " must be an integer of at least " + Constants.MIN_POLL_INTERVAL_MS, Constants.HTTP_BAD_REQUEST);
+
+            return -1;
+        }
+
+        return interval;
+    }
+
     /**
      * Verifies that the discovery exists, is in the correct status, and the device is not already provisioned
      *
@@ -98,7 +371,7 @@ public class ProvisionRoutes extends BaseApi
     private Future<JsonObject> verifyDiscoveryAndProvision(Integer discoveryId)
     {
         // First check if discovery exists and is not in pending status
-        return dbHelper.fetchOne(Constants.DISCOVERY_TABLE, Constants.FIELD_ID, discoveryId)
+        return entityCache.fetchOne(dbHelper, Constants.DISCOVERY_TABLE, discoveryId)
                 .compose(discovery -> {
 
                     if (discovery == null)
@@ -115,6 +388,11 @@ public class ProvisionRoutes extends BaseApi
 
                     var ip = discovery.getString(Constants.IP);
 
+                    if (ip == null)
+                    {
+                        return Future.failedFuture("Range discoveries cannot be provisioned directly");
+                    }
+
                     var port = discovery.getInteger(Constants.PORT, 22);
 
                     var credentialIdsStr = discovery.getString(Constants.CREDENTIAL_IDS);
@@ -148,6 +426,14 @@ public class ProvisionRoutes extends BaseApi
                                         .put(Constants.PORT, port)
                                         .put(Constants.CREDENTIAL_IDS, finalCredentialIds);
 
+                                // Polling starts with the credential discovery found to work
+                                var lastGoodCredentialId = discovery.getInteger(Constants.LAST_GOOD_CREDENTIAL_ID);
+
+                                if (lastGoodCredentialId != null)
+                                {
+                                    provisionData.put(Constants.LAST_GOOD_CREDENTIAL_ID, lastGoodCredentialId);
+                                }
+
                                 return Future.succeededFuture(provisionData);
                             });
                 });
@@ -186,4 +472,16 @@ public class ProvisionRoutes extends BaseApi
         }
 
     }
-}
\ No newline at end of file
+
+    @Override
+    protected Set<String> listColumns()
+    {
+        return LIST_COLUMNS;
+    }
+
+    @Override
+    protected Set<String> listFilters()
+    {
+        return LIST_FILTERS;
+    }
+}
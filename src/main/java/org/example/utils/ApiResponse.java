@@ -1,10 +1,31 @@
 package org.example.utils;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.EncodeException;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.json.jackson.JacksonCodec;
 import io.vertx.ext.web.RoutingContext;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.Tuple;
+import org.example.constants.Constants;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
 
 public class ApiResponse
 {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final int INITIAL_BODY_SIZE = 256;
 
     /**
      * Sends a successful HTTP JSON response.
@@ -17,19 +38,132 @@ public class ApiResponse
 
     public static void success(RoutingContext ctx, Object data, String message, int statusCode)
     {
-        var response = new JsonObject()
-                .put("status", "success")
-                .put("message", message != null ? message : "Operation successful");
+        send(ctx, encodeSuccess(data, message), statusCode);
+    }
+
+    /**
+     * Encodes a successful response body once, so it can be sent to several requests.
+     *
+     * @param data     The response payload (can be null).
+     * @param message  A human-readable message.
+     * @return The encoded body.
+     */
+    public static Buffer encodeSuccess(Object data, String message)
+    {
+        var buffer = Buffer.buffer(INITIAL_BODY_SIZE);
+
+        try (var generator = JSON_FACTORY.createGenerator(new BufferOutputStream(buffer)))
+        {
+            writeEnvelope(generator, message);
 
-        if (data != null)
+            if (data != null)
+            {
+                generator.writeFieldName("data");
+
+                JacksonCodec.encodeJson(data, generator);
+            }
+
+            generator.writeEndObject();
+        }
+        catch (IOException exception)
         {
-            response.put("data", data);
+            throw new EncodeException("Failed to encode response: " + exception.getMessage());
         }
 
-        ctx.response()
-                .setStatusCode(statusCode)
-                .putHeader("Content-Type", "application/json")
-                .end(response.encode());
+        return buffer;
+    }
+
+    /**
+     * Encodes a successful response whose data is a list of rows, writing each row straight from the
+     * row set into the body instead of building a {@code JsonObject} per row first.
+     *
+     * @param rows      The rows, encoded as objects keyed by column name.
+     * @param message   A human-readable message.
+     * @param sizeHint  The expected body size in bytes, e.g. the size of the previous response.
+     * @return The encoded body.
+     */
+    public static Buffer encodeRows(Iterable<Row> rows, String message, int sizeHint)
+    {
+        var buffer = Buffer.buffer(Math.max(sizeHint, INITIAL_BODY_SIZE));
+
+        try (var generator = JSON_FACTORY.createGenerator(new BufferOutputStream(buffer)))
+        {
+            writeEnvelope(generator, message);
+
+            generator.writeArrayFieldStart("data");
+
+            for (var row : rows)
+            {
+                generator.writeStartObject();
+
+                for (var column = 0; column < row.size(); column++)
+                {
+                    generator.writeFieldName(row.getColumnName(column));
+
+                    JacksonCodec.encodeJson(jsonValue(row.getValue(column)), generator);
+                }
+
+                generator.writeEndObject();
+            }
+
+            generator.writeEndArray();
+
+            generator.writeEndObject();
+        }
+        catch (IOException exception)
+        {
+            throw new EncodeException("Failed to encode response: " + exception.getMessage());
+        }
+
+        return buffer;
+    }
+
+    private static void writeEnvelope(JsonGenerator generator, String message) throws IOException
+    {
+        generator.writeStartObject();
+
+        generator.writeStringField("status", "success");
+
+        generator.writeStringField("message", message != null ? message : "Operation successful");
+    }
+
+    /**
+     * Converts a column value the same way {@code Row.toJson()} does: instants to ISO-8601 UTC strings,
+     * arrays to JSON arrays and other non-JSON types such as dates and UUIDs to their string form.
+     */
+    private static Object jsonValue(Object value)
+    {
+        if (value == null || value == Tuple.JSON_NULL)
+        {
+            return null;
+        }
+
+        if (value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Buffer
+                || value instanceof JsonObject || value instanceof JsonArray)
+        {
+            return value;
+        }
+
+        if (value.getClass().isArray())
+        {
+            var length = Array.getLength(value);
+
+            var array = new JsonArray(new ArrayList<>(length));
+
+            for (var i = 0; i < length; i++)
+            {
+                array.add(jsonValue(Array.get(value, i)));
+            }
+
+            return array;
+        }
+
+        if (value instanceof Temporal temporal && temporal.isSupported(ChronoField.INSTANT_SECONDS))
+        {
+            return DateTimeFormatter.ISO_INSTANT.format(temporal);
+        }
+
+        return value.toString();
     }
 
     /**
@@ -51,10 +185,45 @@ public class ApiResponse
             response.put("error", errorDetails);
         }
 
-        ctx.response()
+        send(ctx, response.toBuffer(), statusCode);
+    }
+
+    /**
+     * Sends an encoded JSON body. Bodies below the server's compression threshold are sent uncompressed.
+     * The buffer is not modified, so one buffer can be sent to several requests.
+     *
+     * @param ctx         The routing context.
+     * @param buffer      The encoded response body.
+     * @param statusCode  The HTTP status code to send.
+     */
+    public static void send(RoutingContext ctx, Buffer buffer, int statusCode)
+    {
+        var response = ctx.response()
                 .setStatusCode(statusCode)
-                .putHeader("Content-Type", "application/json")
-                .end(response.encode());
+                .putHeader("Content-Type", "application/json");
+
+        Integer compressionMinSize = ctx.get(Constants.COMPRESSION_MIN_SIZE);
+
+        if (compressionMinSize != null && buffer.length() < compressionMinSize)
+        {
+            response.putHeader(HttpHeaders.CONTENT_ENCODING, HttpHeaders.IDENTITY);
+        }
+
+        response.end(buffer);
+    }
+
+    /**
+     * Sends an empty {@code 304 Not Modified} response.
+     *
+     * @param ctx   The routing context.
+     * @param etag  The entity tag the client already holds.
+     */
+    public static void notModified(RoutingContext ctx, String etag)
+    {
+        ctx.response()
+                .setStatusCode(Constants.HTTP_NOT_MODIFIED)
+                .putHeader(HttpHeaders.ETAG, etag)
+                .end();
     }
 
     /**
@@ -68,4 +237,63 @@ public class ApiResponse
     {
         error(ctx, message, null, statusCode);
     }
+
+    /**
+     * Starts a Server-Sent Events stream on the response.
+     *
+     * @param ctx The routing context.
+     */
+    public static void startEventStream(RoutingContext ctx)
+    {
+        ctx.response()
+                .setStatusCode(200)
+                .setChunked(true)
+                .putHeader("Content-Type", "text/event-stream")
+                // Compressing would hold events back in the compressor
+                .putHeader(HttpHeaders.CONTENT_ENCODING, HttpHeaders.IDENTITY)
+                .putHeader("Cache-Control", "no-cache")
+                .putHeader("Connection", "keep-alive");
+    }
+
+    /**
+     * Writes one Server-Sent Event, unless the client has gone away.
+     *
+     * @param ctx   The routing context.
+     * @param event The event name.
+     * @param data  The event payload.
+     */
+    public static void sendEvent(RoutingContext ctx, String event, JsonObject data)
+    {
+        if (ctx.response().closed() || ctx.response().ended())
+        {
+            return;
+        }
+
+        ctx.response().write("event: " + event + "\ndata: " + data.encode() + "\n\n");
+    }
+
+    /**
+     * Lets the JSON generator flush its internal buffer straight into a Vert.x buffer.
+     */
+    private static final class BufferOutputStream extends OutputStream
+    {
+        private final Buffer buffer;
+
+        private BufferOutputStream(Buffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int value)
+        {
+            buffer.appendByte((byte) value);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length)
+        {
+            buffer.appendBytes(bytes, offset, length);
+        }
+    }
 }
@@ -0,0 +1,188 @@
+package org.example.utils;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.JWTOptions;
+import io.vertx.ext.auth.User;
+import io.vertx.ext.auth.authentication.Credentials;
+import io.vertx.ext.auth.authentication.TokenCredentials;
+import io.vertx.ext.auth.jwt.JWTAuth;
+import org.example.constants.Constants;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link JWTAuth} that remembers tokens it has already verified, so a client that sends the same bearer
+ * token on every request pays for signature verification and claim parsing once.
+ * <p>
+ * Entries are keyed by a SHA-256 hash of the token (the token itself is not kept) and expire at the
+ * token's {@code exp} claim; tokens without one are never cached. Failed verifications are not cached.
+ * Each hit returns a new {@link User} built from copies of the cached principal and attributes.
+ */
+public class CachingJwtAuth implements JWTAuth
+{
+    private static final String METRIC_HIT = "jwt.cache.hit";
+
+    private static final String METRIC_MISS = "jwt.cache.miss";
+
+    private static final String METRIC_SIZE = "jwt.cache.size";
+
+    private final JWTAuth delegate;
+
+    private final int maxEntries;
+
+    private final Map<String, Entry> verified = new ConcurrentHashMap<>();
+
+    public CachingJwtAuth(JWTAuth delegate, JsonObject config)
+    {
+        this.delegate = delegate;
+
+        this.maxEntries = config.getInteger(Constants.JWT_CACHE_MAX_ENTRIES, Constants.DEFAULT_JWT_CACHE_MAX_ENTRIES);
+    }
+
+    @Override
+    public Future<User> authenticate(Credentials credentials)
+    {
+        if (!(credentials instanceof TokenCredentials tokenCredentials) || tokenCredentials.getToken() == null)
+        {
+            return delegate.authenticate(credentials);
+        }
+
+        var token = tokenCredentials.getToken();
+
+        var key = hash(token);
+
+        var cached = verified.get(key);
+
+        if (cached != null)
+        {
+            if (cached.expiresAt > System.currentTimeMillis())
+            {
+                Metrics.increment(METRIC_HIT);
+
+                return Future.succeededFuture(User.create(cached.principal.copy(), cached.attributes.copy()));
+            }
+
+            verified.remove(key, cached);
+        }
+
+        Metrics.increment(METRIC_MISS);
+
+        return delegate.authenticate(credentials)
+                .onSuccess(user -> {
+
+                    var expiresAt = expiresAt(token);
+
+                    if (expiresAt > System.currentTimeMillis())
+                    {
+                        verified.put(key, new Entry(user.principal().copy(), user.attributes().copy(), expiresAt));
+
+                        evictIfFull();
+
+                        Metrics.gauge(METRIC_SIZE, verified.size());
+                    }
+                });
+    }
+
+    @Deprecated
+    @Override
+    public Future<User> authenticate(JsonObject credentials)
+    {
+        return authenticate(new TokenCredentials(credentials));
+    }
+
+    @Deprecated
+    @Override
+    public void authenticate(JsonObject credentials, Handler<AsyncResult<User>> resultHandler)
+    {
+        authenticate(credentials).onComplete(resultHandler);
+    }
+
+    @Override
+    public void authenticate(Credentials credentials, Handler<AsyncResult<User>> resultHandler)
+    {
+        authenticate(credentials).onComplete(resultHandler);
+    }
+
+    @Override
+    public String generateToken(JsonObject claims, JWTOptions options)
+    {
+        return delegate.generateToken(claims, options);
+    }
+
+    @Override
+    public String generateToken(JsonObject claims)
+    {
+        return delegate.generateToken(claims);
+    }
+
+    /**
+     * Drops expired entries once the cache grows beyond its limit, and the whole cache if that is not enough.
+     */
+    private void evictIfFull()
+    {
+        if (verified.size() <= maxEntries)
+        {
+            return;
+        }
+
+        var now = System.currentTimeMillis();
+
+        verified.values().removeIf(entry -> entry.expiresAt <= now);
+
+        if (verified.size() > maxEntries)
+        {
+            verified.clear();
+        }
+    }
+
+    /**
+     * Reads the {@code exp} claim of a token that has already been verified.
+     *
+     * @param token The token.
+     * @return The expiry in epoch milliseconds, or 0 if the token has none.
+     */
+    private static long expiresAt(String token)
+    {
+        try
+        {
+            var payload = token.split("\\.")[1];
+
+            var claims = new JsonObject(new String(Base64.getUrlDecoder().decode(payload), StandardCharsets.UTF_8));
+
+            var exp = claims.getLong("exp");
+
+            return exp == null ? 0 : exp * 1000;
+        }
+        catch (Exception exception)
+        {
+            return 0;
+        }
+    }
+
+    private static String hash(String token)
+    {
+        try
+        {
+            var digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+
+            return Base64.getEncoder().encodeToString(digest);
+        }
+        catch (NoSuchAlgorithmException exception)
+        {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private record Entry(JsonObject principal, JsonObject attributes, long expiresAt)
+    {
+    }
+}
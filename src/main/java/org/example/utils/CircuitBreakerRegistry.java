@@ -0,0 +1,205 @@
+package org.example.utils;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import org.example.constants.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Per-target (ip:port) circuit breakers shared by the discovery and polling engines.
+ * <p>
+ * A target starts closed. After {@code failureThreshold} consecutive failed probes it opens and every
+ * probe is rejected instantly for {@code openMs}. After that it goes half-open and lets up to
+ * {@code halfOpenMaxProbes} probes through: a success closes it, a failure opens it again.
+ */
+public class CircuitBreakerRegistry
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreakerRegistry.class);
+
+    private static final String METRIC_REJECTED = "circuit.rejected";
+
+    private static final String METRIC_OPENED = "circuit.opened";
+
+    private static final String METRIC_OPEN_TARGETS = "circuit.open_targets";
+
+    public enum State
+    {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+
+    private final long openMs;
+
+    private final int halfOpenMaxProbes;
+
+    private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    private final AtomicLong openTargets = new AtomicLong();
+
+    public CircuitBreakerRegistry(JsonObject config)
+    {
+        this.failureThreshold = config.getInteger(Constants.CIRCUIT_FAILURE_THRESHOLD, Constants.DEFAULT_CIRCUIT_FAILURE_THRESHOLD);
+
+        this.openMs = config.getLong(Constants.CIRCUIT_OPEN_MS, Constants.DEFAULT_CIRCUIT_OPEN_MS);
+
+        this.halfOpenMaxProbes = config.getInteger(Constants.CIRCUIT_HALF_OPEN_MAX_PROBES, Constants.DEFAULT_CIRCUIT_HALF_OPEN_MAX_PROBES);
+    }
+
+    /**
+     * Builds the registry key of a target.
+     *
+     * @param ip   The target IP address.
+     * @param port The target port.
+     * @return The key in ip:port form.
+     */
+    public static String key(String ip, int port)
+    {
+        return ip + ":" + port;
+    }
+
+    /**
+     * Runs the availability probe through the breaker of the target.
+     * When the breaker is open the probe is skipped and the result is {@code false}.
+     *
+     * @param key   The target key, see {@link #key(String, int)}.
+     * @param probe Supplier of the availability probe.
+     * @return Future with the availability result.
+     */
+    public Future<Boolean> execute(String key, Supplier<Future<Boolean>> probe)
+    {
+        var breaker = breakers.computeIfAbsent(key, k -> new Breaker());
+
+        if (!breaker.tryAcquire())
+        {
+            Metrics.increment(METRIC_REJECTED);
+
+            LOGGER.debug("Circuit open for {}, skipping probe", key);
+
+            return Future.succeededFuture(false);
+        }
+
+        try
+        {
+            return probe.get()
+                    .onComplete(result -> {
+
+                        if (result.succeeded() && Boolean.TRUE.equals(result.result()))
+                        {
+                            breaker.onSuccess(key);
+                        }
+                        else
+                        {
+                            breaker.onFailure(key);
+                        }
+                    });
+        }
+        catch (Exception exception)
+        {
+            breaker.onFailure(key);
+
+            return Future.failedFuture(exception);
+        }
+    }
+
+    /**
+     * Returns the current state of the target's breaker.
+     *
+     * @param key The target key.
+     * @return The breaker state, {@link State#CLOSED} for unknown targets.
+     */
+    public State state(String key)
+    {
+        var breaker = breakers.get(key);
+
+        return breaker == null ? State.CLOSED : breaker.currentState();
+    }
+
+    private final class Breaker
+    {
+        private State state = State.CLOSED;
+
+        private int failures;
+
+        private int probesInFlight;
+
+        private long openUntil;
+
+        private synchronized boolean tryAcquire()
+        {
+            if (state == State.OPEN)
+            {
+                if (System.currentTimeMillis() < openUntil)
+                {
+                    return false;
+                }
+
+                state = State.HALF_OPEN;
+
+                probesInFlight = 0;
+            }
+
+            if (state == State.HALF_OPEN)
+            {
+                if (probesInFlight >= halfOpenMaxProbes)
+                {
+                    return false;
+                }
+
+                probesInFlight++;
+            }
+
+            return true;
+        }
+
+        private synchronized void onSuccess(String key)
+        {
+            if (state != State.CLOSED)
+            {
+                Metrics.gauge(METRIC_OPEN_TARGETS, openTargets.decrementAndGet());
+
+                LOGGER.info("Circuit closed for {}", key);
+            }
+
+            state = State.CLOSED;
+
+            failures = 0;
+
+            probesInFlight = 0;
+        }
+
+        private synchronized void onFailure(String key)
+        {
+            failures++;
+
+            if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold))
+            {
+                if (state == State.CLOSED)
+                {
+                    Metrics.gauge(METRIC_OPEN_TARGETS, openTargets.incrementAndGet());
+                }
+
+                state = State.OPEN;
+
+                openUntil = System.currentTimeMillis() + openMs;
+
+                probesInFlight = 0;
+
+                Metrics.increment(METRIC_OPENED);
+
+                LOGGER.warn("Circuit opened for {} after {} consecutive failures", key, failures);
+            }
+        }
+
+        private synchronized State currentState()
+        {
+            return state;
+        }
+    }
+}
@@ -0,0 +1,583 @@
+package org.example.utils;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * A JSON schema (draft-07 subset) compiled once into plain Java checks that run directly on Vert.x
+ * {@link JsonObject} / {@link JsonArray} values, so request bodies are validated without being encoded
+ * and parsed again into another tree model.
+ * <p>
+ * Supported keywords: {@code type, required, properties, additionalProperties, anyOf, allOf, oneOf, not,
+ * enum, const, minLength, maxLength, pattern, format (ipv4), items, minItems, maxItems, minimum, maximum,
+ * exclusiveMinimum, exclusiveMaximum}. Any other keyword fails compilation, so a schema is never
+ * silently enforced only in part. Compiled schemas are immutable and shared by every route instance.
+ */
+public final class CompiledSchema
+{
+    private static final Map<String, CompiledSchema> schemas = new ConcurrentHashMap<>();
+
+    private static final Set<String> ANNOTATIONS = Set.of("$schema", "$id", "$comment", "title", "description", "default", "examples");
+
+    private static final Pattern IPV4 = Pattern.compile("^(25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)(\\.(25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)){3}$");
+
+    private final List<Check> checks;
+
+    private CompiledSchema(List<Check> checks)
+    {
+        this.checks = checks;
+    }
+
+    /**
+     * Returns the compiled schema for a file on the classpath, compiling it on first use.
+     *
+     * @param schemaPath The resource path of the schema.
+     * @return The shared compiled schema.
+     * @throws IllegalArgumentException if the file is missing, unreadable or uses an unsupported keyword.
+     */
+    public static CompiledSchema load(String schemaPath)
+    {
+        return schemas.computeIfAbsent(schemaPath, CompiledSchema::read);
+    }
+
+    /**
+     * Compiles a schema.
+     *
+     * @param schema The schema document.
+     * @return The compiled schema.
+     * @throws IllegalArgumentException if the schema uses an unsupported keyword.
+     */
+    public static CompiledSchema compile(JsonObject schema)
+    {
+        return new CompiledSchema(compileNode(schema, "#"));
+    }
+
+    /**
+     * Validates a value against the schema.
+     *
+     * @param value The value, typically a request body.
+     * @return The validation errors; empty if the value is valid.
+     */
+    public List<String> validate(Object value)
+    {
+        var errors = new ArrayList<String>();
+
+        run(checks, value, "$", errors);
+
+        return errors;
+    }
+
+    private static CompiledSchema read(String schemaPath)
+    {
+        try (var schemaStream = CompiledSchema.class.getClassLoader().getResourceAsStream(schemaPath))
+        {
+            if (schemaStream == null)
+            {
+                throw new IllegalArgumentException("Schema file not found: " + schemaPath);
+            }
+
+            return compile(new JsonObject(Buffer.buffer(schemaStream.readAllBytes())));
+        }
+        catch (IllegalArgumentException exception)
+        {
+            throw exception;
+        }
+        catch (Exception exception)
+        {
+            throw new IllegalArgumentException("Failed to load schema " + schemaPath + ": " + exception.getMessage(), exception);
+        }
+    }
+
+    private static void run(List<Check> checks, Object value, String path, List<String> errors)
+    {
+        for (var check : checks)
+        {
+            check.check(value, path, errors);
+        }
+    }
+
+    private static boolean matches(List<Check> checks, Object value)
+    {
+        var errors = new ArrayList<String>();
+
+        run(checks, value, "$", errors);
+
+        return errors.isEmpty();
+    }
+
+    private static List<Check> compileNode(JsonObject schema, String location)
+    {
+        var checks = new ArrayList<Check>();
+
+        for (var keyword : schema.fieldNames())
+        {
+            var keywordLocation = location + "/" + keyword;
+
+            switch (keyword)
+            {
+                case "type" -> checks.add(typeCheck(schema.getValue(keyword)));
+
+                case "required" -> checks.add(requiredCheck(schema.getJsonArray(keyword)));
+
+                case "properties" -> checks.add(propertiesCheck(schema.getJsonObject(keyword), keywordLocation));
+
+                case "additionalProperties" -> checks.add(additionalPropertiesCheck(schema, keywordLocation));
+
+                case "anyOf", "allOf", "oneOf" -> checks.add(combinatorCheck(keyword, schema.getJsonArray(keyword), keywordLocation));
+
+                case "not" ->
+                {
+                    var negated = compileNode(schema.getJsonObject(keyword), keywordLocation);
+
+                    checks.add((value, path, errors) -> {
+
+                        if (matches(negated, value))
+                        {
+                            errors.add(path + ": must not match the schema in 'not'");
+                        }
+                    });
+                }
+
+                case "enum" ->
+                {
+                    var allowed = schema.getJsonArray(keyword);
+
+                    checks.add((value, path, errors) -> {
+
+                        if (!containsJson(allowed, value))
+                        {
+                            errors.add(path + ": does not have a value in the enumeration " + allowed.encode());
+                        }
+                    });
+                }
+
+                case "const" ->
+                {
+                    var expected = schema.getValue(keyword);
+
+                    checks.add((value, path, errors) -> {
+
+                        if (!jsonEquals(expected, value))
+                        {
+                            errors.add(path + ": must be the constant value " + expected);
+                        }
+                    });
+                }
+
+                case "minLength", "maxLength" -> checks.add(lengthCheck(keyword, schema.getInteger(keyword)));
+
+                case "pattern" ->
+                {
+                    var pattern = Pattern.compile(schema.getString(keyword));
+
+                    checks.add((value, path, errors) -> {
+
+                        if (value instanceof String text && !pattern.matcher(text).find())
+                        {
+                            errors.add(path + ": does not match the regex pattern " + pattern.pattern());
+                        }
+                    });
+                }
+
+                case "format" -> checks.add(formatCheck(schema.getString(keyword), keywordLocation));
+
+                case "items" -> checks.add(itemsCheck(schema.getValue(keyword), keywordLocation));
+
+                case "minItems", "maxItems" -> checks.add(itemCountCheck(keyword, schema.getInteger(keyword)));
+
+                case "minimum", "maximum", "exclusiveMinimum", "exclusiveMaximum" ->
+                        checks.add(boundCheck(keyword, new BigDecimal(schema.getValue(keyword).toString())));
+
+                default ->
+                {
+                    if (!ANNOTATIONS.contains(keyword))
+                    {
+                        throw new IllegalArgumentException("Unsupported schema keyword at " + keywordLocation);
+                    }
+                }
+            }
+        }
+
+        return checks;
+    }
+
+    private static Check typeCheck(Object type)
+    {
+        var types = new ArrayList<String>();
+
+        if (type instanceof JsonArray array)
+        {
+            array.forEach(entry -> types.add(entry.toString()));
+        }
+        else
+        {
+            types.add(type.toString());
+        }
+
+        return (value, path, errors) -> {
+
+            for (var expected : types)
+            {
+                if (isType(value, expected))
+                {
+                    return;
+                }
+            }
+
+            errors.add(path + ": " + typeName(value) + " found, " + String.join(" or ", types) + " expected");
+        };
+    }
+
+    private static Check requiredCheck(JsonArray required)
+    {
+        var names = new ArrayList<String>();
+
+        required.forEach(name -> names.add(name.toString()));
+
+        return (value, path, errors) -> {
+
+            if (!(value instanceof JsonObject object))
+            {
+                return;
+            }
+
+            for (var name : names)
+            {
+                if (!object.containsKey(name))
+                {
+                    errors.add(path + "." + name + ": is missing but it is required");
+                }
+            }
+        };
+    }
+
+    private static Check propertiesCheck(JsonObject properties, String location)
+    {
+        var compiled = new ArrayList<Map.Entry<String, List<Check>>>();
+
+        for (var name : properties.fieldNames())
+        {
+            compiled.add(Map.entry(name, compileNode(properties.getJsonObject(name), location + "/" + name)));
+        }
+
+        return (value, path, errors) -> {
+
+            if (!(value instanceof JsonObject object))
+            {
+                return;
+            }
+
+            for (var property : compiled)
+            {
+                if (object.containsKey(property.getKey()))
+                {
+                    run(property.getValue(), object.getValue(property.getKey()), path + "." + property.getKey(), errors);
+                }
+            }
+        };
+    }
+
+    private static Check additionalPropertiesCheck(JsonObject schema, String location)
+    {
+        var declared = new HashSet<String>();
+
+        var properties = schema.getJsonObject("properties");
+
+        if (properties != null)
+        {
+            declared.addAll(properties.fieldNames());
+        }
+
+        var additional = schema.getValue("additionalProperties");
+
+        if (Boolean.TRUE.equals(additional))
+        {
+            return (value, path, errors) -> { };
+        }
+
+        var extraChecks = additional instanceof JsonObject extraSchema ? compileNode(extraSchema, location) : null;
+
+        return (value, path, errors) -> {
+
+            if (!(value instanceof JsonObject object))
+            {
+                return;
+            }
+
+            for (var name : object.fieldNames())
+            {
+                if (declared.contains(name))
+                {
+                    continue;
+                }
+
+                if (extraChecks == null)
+                {
+                    errors.add(path + "." + name + ": is not defined in the schema and the schema does not allow additional properties");
+                }
+                else
+                {
+                    run(extraChecks, object.getValue(name), path + "." + name, errors);
+                }
+            }
+        };
+    }
+
+    private static Check combinatorCheck(String keyword, JsonArray subschemas, String location)
+    {
+        var compiled = new ArrayList<List<Check>>();
+
+        for (var index = 0; index < subschemas.size(); index++)
+        {
+            compiled.add(compileNode(subschemas.getJsonObject(index), location + "/" + index));
+        }
+
+        return (value, path, errors) -> {
+
+            var matching = 0;
+
+            for (var subschema : compiled)
+            {
+                if (matches(subschema, value))
+                {
+                    matching++;
+                }
+            }
+
+            var valid = switch (keyword)
+            {
+                case "anyOf" -> matching > 0;
+
+                case "allOf" -> matching == compiled.size();
+
+                default -> matching == 1;
+            };
+
+            if (!valid)
+            {
+                errors.add(path + ": must be valid against " + keyword + " schemas (" + matching + " of " + compiled.size() + " matched)");
+            }
+        };
+    }
+
+    private static Check lengthCheck(String keyword, int limit)
+    {
+        var minimum = keyword.equals("minLength");
+
+        return (value, path, errors) -> {
+
+            if (!(value instanceof String text))
+            {
+                return;
+            }
+
+            var length = text.codePointCount(0, text.length());
+
+            if (minimum ? length < limit : length > limit)
+            {
+                errors.add(path + ": must be " + (minimum ? "at least " : "at most ") + limit + " characters long");
+            }
+        };
+    }
+
+    private static Check formatCheck(String format, String location)
+    {
+        if (!format.equals("ipv4"))
+        {
+            throw new IllegalArgumentException("Unsupported format '" + format + "' at " + location);
+        }
+
+        return (value, path, errors) -> {
+
+            if (value instanceof String text && !IPV4.matcher(text).matches())
+            {
+                errors.add(path + ": does not match the ipv4 pattern");
+            }
+        };
+    }
+
+    private static Check itemsCheck(Object items, String location)
+    {
+        if (!(items instanceof JsonObject itemSchema))
+        {
+            throw new IllegalArgumentException("Only a single 'items' schema is supported at " + location);
+        }
+
+        var itemChecks = compileNode(itemSchema, location);
+
+        return (value, path, errors) -> {
+
+            if (!(value instanceof JsonArray array))
+            {
+                return;
+            }
+
+            for (var index = 0; index < array.size(); index++)
+            {
+                run(itemChecks, array.getValue(index), path + "[" + index + "]", errors);
+            }
+        };
+    }
+
+    private static Check itemCountCheck(String keyword, int limit)
+    {
+        var minimum = keyword.equals("minItems");
+
+        return (value, path, errors) -> {
+
+            if (value instanceof JsonArray array && (minimum ? array.size() < limit : array.size() > limit))
+            {
+                errors.add(path + ": must have " + (minimum ? "at least " : "at most ") + limit + " items");
+            }
+        };
+    }
+
+    private static Check boundCheck(String keyword, BigDecimal bound)
+    {
+        return (value, path, errors) -> {
+
+            if (!(value instanceof Number number))
+            {
+                return;
+            }
+
+            var comparison = toDecimal(number).compareTo(bound);
+
+            var valid = switch (keyword)
+            {
+                case "minimum" -> comparison >= 0;
+
+                case "maximum" -> comparison <= 0;
+
+                case "exclusiveMinimum" -> comparison > 0;
+
+                default -> comparison < 0;
+            };
+
+            if (!valid)
+            {
+                errors.add(path + ": must satisfy " + keyword + " " + bound.toPlainString());
+            }
+        };
+    }
+
+    private static boolean isType(Object value, String type)
+    {
+        return switch (type)
+        {
+            case "string" -> value instanceof String;
+
+            case "object" -> value instanceof JsonObject;
+
+            case "array" -> value instanceof JsonArray;
+
+            case "boolean" -> value instanceof Boolean;
+
+            case "null" -> value == null;
+
+            case "number" -> value instanceof Number;
+
+            case "integer" -> value instanceof Number number && isIntegral(number);
+
+            default -> throw new IllegalArgumentException("Unknown schema type: " + type);
+        };
+    }
+
+    private static boolean isIntegral(Number number)
+    {
+        if (number instanceof Integer || number instanceof Long || number instanceof Short
+                || number instanceof Byte || number instanceof BigInteger)
+        {
+            return true;
+        }
+
+        var decimal = toDecimal(number);
+
+        return decimal.signum() == 0 || decimal.stripTrailingZeros().scale() <= 0;
+    }
+
+    private static BigDecimal toDecimal(Number number)
+    {
+        if (number instanceof BigDecimal decimal)
+        {
+            return decimal;
+        }
+
+        if (number instanceof BigInteger integer)
+        {
+            return new BigDecimal(integer);
+        }
+
+        if (number instanceof Double || number instanceof Float)
+        {
+            return BigDecimal.valueOf(number.doubleValue());
+        }
+
+        return BigDecimal.valueOf(number.longValue());
+    }
+
+    private static String typeName(Object value)
+    {
+        if (value == null)
+        {
+            return "null";
+        }
+
+        if (value instanceof JsonObject)
+        {
+            return "object";
+        }
+
+        if (value instanceof JsonArray)
+        {
+            return "array";
+        }
+
+        if (value instanceof Number)
+        {
+            return "number";
+        }
+
+        return value instanceof Boolean ? "boolean" : "string";
+    }
+
+    private static boolean containsJson(JsonArray allowed, Object value)
+    {
+        for (var candidate : allowed)
+        {
+            if (jsonEquals(candidate, value))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean jsonEquals(Object expected, Object value)
+    {
+        if (expected instanceof Number left && value instanceof Number right)
+        {
+            return toDecimal(left).compareTo(toDecimal(right)) == 0;
+        }
+
+        return expected == null ? value == null : expected.equals(value);
+    }
+
+    @FunctionalInterface
+    private interface Check
+    {
+        void check(Object value, String path, List<String> errors);
+    }
+}
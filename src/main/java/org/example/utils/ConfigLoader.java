@@ -16,11 +16,58 @@ import org.example.constants.Constants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 public class ConfigLoader
 {
 
     private static final Logger logger = LoggerFactory.getLogger(ConfigLoader.class);
 
+    /**
+     * Reads whether the native transport should be preferred. This runs before Vert.x exists, so the
+     * config file is read synchronously, from the working directory or else from the classpath.
+     *
+     * @return the server.nativeTransport flag, true if it cannot be read.
+     */
+    public static boolean preferNativeTransport()
+    {
+        try
+        {
+            var path = Path.of(Constants.CONFIG_FILE_PATH);
+
+            String content;
+
+            if (Files.exists(path))
+            {
+                content = Files.readString(path);
+            }
+            else
+            {
+                try (var stream = ConfigLoader.class.getClassLoader().getResourceAsStream(Constants.CONFIG_FILE_PATH))
+                {
+                    if (stream == null)
+                    {
+                        return true;
+                    }
+
+                    content = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+                }
+            }
+
+            return new JsonObject(content)
+                    .getJsonObject(Constants.SERVER, new JsonObject())
+                    .getBoolean(Constants.SERVER_NATIVE_TRANSPORT, true);
+        }
+        catch (Exception exception)
+        {
+            logger.warn("Failed to read {} from the configuration file: {}", Constants.SERVER_NATIVE_TRANSPORT, exception.getMessage());
+
+            return true;
+        }
+    }
+
     /**
      * Loads the configuration asynchronously from a file.
      *
@@ -3,11 +3,15 @@ package org.example.utils;
 import io.vertx.core.Future;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Tuple;
 import org.example.constants.Constants;
 import org.example.db.DbQueryHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+
 /**
  * Service class for handling credential-related operations
  */
@@ -22,15 +26,15 @@ public class CredentialProfiles {
     }
 
     /**
-     * Fetches credential profiles from the database based on the provided credential IDs
+     * Fetches credential profiles from the database based on the provided credential IDs, in one query.
+     * The profiles keep the order of credential_ids; IDs with no matching credential are skipped.
      *
      * @param credentialIds The array of credential IDs
      * @return Future that completes with the array of credential profiles
      */
     public Future<JsonArray> fetchCredentialProfiles(JsonArray credentialIds)
     {
-        var profiles = new JsonArray();
-
+        var ids = new ArrayList<Integer>();
 
         for (var i = 0; i < credentialIds.size(); i++)
         {
@@ -43,24 +47,106 @@ public class CredentialProfiles {
                 continue;
             }
 
-            return Future.succeededFuture(profiles).compose(res ->
-                    dbHelper.fetchOne(Constants.CREDENTIAL_TABLE, Constants.FIELD_ID, credentialId)
-                            .map(credential -> {
-                                if (credential != null)
-                                {
-
-                                    credential.put(Constants.CREDENTIAL_ID, credentialId);
-                                    res.add(credential);
-                                }
-                                else
-                                {
-                                    LOGGER.warn("Credential not found with ID: {}", credentialId);
-                                }
-                                return res;
-                            })
-            );
+            ids.add(credentialId);
+        }
+
+        if (ids.isEmpty())
+        {
+            return Future.succeededFuture(new JsonArray());
+        }
+
+        return dbHelper.execute(String.format(Constants.SQL_SELECT_ROWS_BY_IDS, Constants.CREDENTIAL_TABLE), Tuple.of(ids.toArray(new Integer[0])))
+                .map(rows -> {
+
+                    var byId = new HashMap<Integer, JsonObject>();
+
+                    for (var row : rows)
+                    {
+                        var credential = row.toJson();
+
+                        byId.put(credential.getInteger(Constants.FIELD_ID), credential);
+                    }
+
+                    var profiles = new JsonArray();
+
+                    for (var credentialId : ids)
+                    {
+                        var credential = byId.get(credentialId);
+
+                        if (credential != null)
+                        {
+                            profiles.add(credential.copy().put(Constants.CREDENTIAL_ID, credentialId));
+                        }
+                        else
+                        {
+                            LOGGER.warn("Credential not found with ID: {}", credentialId);
+                        }
+                    }
+
+                    return profiles;
+                });
+    }
+
+    /**
+     * Picks the credential that worked last time out of the attached profiles
+     *
+     * @param credentialProfiles The attached credential profiles
+     * @param lastGoodCredentialId The ID of the credential that last succeeded, may be null
+     * @return Array holding only that profile, or null when there is nothing narrower to try first
+     */
+    public JsonArray preferredCredentials(JsonArray credentialProfiles, Integer lastGoodCredentialId)
+    {
+        if (lastGoodCredentialId == null || credentialProfiles.size() < 2)
+        {
+            return null;
         }
-        return Future.succeededFuture(profiles);
+
+        for (var i = 0; i < credentialProfiles.size(); i++)
+        {
+            var credential = credentialProfiles.getJsonObject(i);
+
+            if (lastGoodCredentialId.equals(credential.getInteger(Constants.CREDENTIAL_ID)))
+            {
+                return new JsonArray().add(credential);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Works out which credential a successful plugin result used: the only one sent, or the one whose
+     * name the plugin echoed back
+     *
+     * @param credentialProfiles The credential profiles sent for this context
+     * @param pluginResult The successful plugin result
+     * @return The credential ID, or null if it cannot be told
+     */
+    public Integer successfulCredentialId(JsonArray credentialProfiles, JsonObject pluginResult)
+    {
+        if (credentialProfiles.size() == 1)
+        {
+            return credentialProfiles.getJsonObject(0).getInteger(Constants.CREDENTIAL_ID);
+        }
+
+        var echoedName = pluginResult.getString(Constants.CREDENTIAL_NAME);
+
+        if (echoedName == null)
+        {
+            return null;
+        }
+
+        for (var i = 0; i < credentialProfiles.size(); i++)
+        {
+            var credential = credentialProfiles.getJsonObject(i);
+
+            if (echoedName.equals(credential.getString("name")))
+            {
+                return credential.getInteger(Constants.CREDENTIAL_ID);
+            }
+        }
+
+        return null;
     }
 
     /**
@@ -0,0 +1,215 @@
+package org.example.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A set of IPv4 addresses described by a comma separated list of single addresses and CIDR blocks,
+ * e.g. {@code "10.1.0.0/16, 192.168.1.10"}. Addresses are generated lazily.
+ * <p>
+ * Blocks larger than a /24 are walked subnet-interleaved (.1 of every /24, then .2 of every /24, ...)
+ * so consecutive probes land on different subnets. Network and broadcast addresses of blocks up to
+ * a /30 are skipped.
+ */
+public final class IpRange
+{
+    private final List<Block> blocks;
+
+    private final long size;
+
+    private IpRange(List<Block> blocks)
+    {
+        this.blocks = blocks;
+
+        this.size = blocks.stream().mapToLong(Block::size).sum();
+    }
+
+    /**
+     * Parses a range specification.
+     *
+     * @param spec Comma separated IPv4 addresses and CIDR blocks.
+     * @return The parsed range.
+     * @throws IllegalArgumentException if an entry is not a valid address or block.
+     */
+    public static IpRange parse(String spec)
+    {
+        if (spec == null || spec.isBlank())
+        {
+            throw new IllegalArgumentException("IP range is empty");
+        }
+
+        var blocks = new ArrayList<Block>();
+
+        for (var entry : spec.split(","))
+        {
+            var trimmed = entry.trim();
+
+            if (trimmed.isEmpty())
+            {
+                continue;
+            }
+
+            var slash = trimmed.indexOf('/');
+
+            if (slash < 0)
+            {
+                blocks.add(new Block(toLong(trimmed), 1, 1, false));
+
+                continue;
+            }
+
+            int prefix;
+
+            try
+            {
+                prefix = Integer.parseInt(trimmed.substring(slash + 1));
+            }
+            catch (NumberFormatException exception)
+            {
+                throw new IllegalArgumentException("Invalid CIDR prefix: " + trimmed);
+            }
+
+            if (prefix < 0 || prefix > 32)
+            {
+                throw new IllegalArgumentException("Invalid CIDR prefix: " + trimmed);
+            }
+
+            var blockSize = 1L << (32 - prefix);
+
+            var base = toLong(trimmed.substring(0, slash)) & ~(blockSize - 1) & 0xFFFFFFFFL;
+
+            var subnets = blockSize > 256 ? blockSize / 256 : 1;
+
+            blocks.add(new Block(base, blockSize, subnets, prefix <= 30));
+        }
+
+        if (blocks.isEmpty())
+        {
+            throw new IllegalArgumentException("IP range is empty");
+        }
+
+        return new IpRange(blocks);
+    }
+
+    /**
+     * Returns the number of addresses in the range.
+     *
+     * @return The address count.
+     */
+    public long size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns a lazy iterator over the addresses as unsigned 32-bit values.
+     *
+     * @return The address iterator.
+     */
+    public PrimitiveIterator.OfLong iterator()
+    {
+        return new PrimitiveIterator.OfLong()
+        {
+            private int blockIndex = 0;
+
+            private long offset = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                while (blockIndex < blocks.size())
+                {
+                    var block = blocks.get(blockIndex);
+
+                    if (offset < block.size && !(block.skipEdges && (offset == 0 || offset == block.size - 1)))
+                    {
+                        return true;
+                    }
+
+                    if (offset >= block.size)
+                    {
+                        blockIndex++;
+
+                        offset = 0;
+                    }
+                    else
+                    {
+                        offset++;
+                    }
+                }
+
+                return false;
+            }
+
+            @Override
+            public long nextLong()
+            {
+                if (!hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+
+                return blocks.get(blockIndex).address(offset++);
+            }
+        };
+    }
+
+    /**
+     * Converts an unsigned 32-bit value to dotted-quad notation.
+     *
+     * @param address The address value.
+     * @return The address string.
+     */
+    public static String toString(long address)
+    {
+        return ((address >> 24) & 0xFF) + "." + ((address >> 16) & 0xFF) + "." + ((address >> 8) & 0xFF) + "." + (address & 0xFF);
+    }
+
+    private static long toLong(String address)
+    {
+        var octets = address.trim().split("\\.");
+
+        if (octets.length != 4)
+        {
+            throw new IllegalArgumentException("Invalid IPv4 address: " + address);
+        }
+
+        var value = 0L;
+
+        for (var octet : octets)
+        {
+            int part;
+
+            try
+            {
+                part = Integer.parseInt(octet);
+            }
+            catch (NumberFormatException exception)
+            {
+                throw new IllegalArgumentException("Invalid IPv4 address: " + address);
+            }
+
+            if (part < 0 || part > 255)
+            {
+                throw new IllegalArgumentException("Invalid IPv4 address: " + address);
+            }
+
+            value = (value << 8) | part;
+        }
+
+        return value;
+    }
+
+    private record Block(long base, long size, long subnets, boolean skipEdges)
+    {
+        /**
+         * Maps a walk position to an address, interleaving the /24 subnets of large blocks.
+         */
+        private long address(long offset)
+        {
+            return base + (offset % subnets) * 256 + offset / subnets;
+        }
+    }
+}
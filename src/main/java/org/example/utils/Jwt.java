@@ -22,7 +22,14 @@ public class Jwt
     private final JWTOptions jwtOptions;
     private final JWTOptions refreshTokenOptions;
 
-    public Jwt()
+    /**
+     * Creates the JWT provider. One instance is shared by every HttpServer instance; JWTAuth holds only
+     * the loaded keys and the verification cache is concurrent, so signing and verifying are safe from any event loop.
+     *
+     * @param vertx       the Vert.x instance
+     * @param cacheConfig the {@code jwtCache} config section
+     */
+    public Jwt(Vertx vertx, JsonObject cacheConfig)
     {
         KeyStoreOptions keyStoreOptions = new KeyStoreOptions()
                 .setPath(Constants.KEYSTORE_PATH)
@@ -32,7 +39,8 @@ public class Jwt
         var jwtAuthOptions = new JWTAuthOptions()
                 .setKeyStore(keyStoreOptions);
 
-        this.jwtAuth = JWTAuth.create(Vertx.currentContext().owner(), jwtAuthOptions);
+        // Verified tokens are remembered until they expire
+        this.jwtAuth = new CachingJwtAuth(JWTAuth.create(vertx, jwtAuthOptions), cacheConfig);
 
         this.jwtOptions = new JWTOptions().setExpiresInSeconds(Math.toIntExact(Constants.DEFAULT_EXPIRATION_MILLIS / 1000));
 
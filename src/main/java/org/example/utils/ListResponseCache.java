@@ -0,0 +1,151 @@
+package org.example.utils;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.example.constants.Constants;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses identical concurrent list queries into one execution and shares the encoded response body.
+ * <p>
+ * Requests for the same key at the same table version join the query already in flight and are sent
+ * the same {@link Buffer}. With {@code microCacheMs} above zero the finished body keeps being served for
+ * that long, as long as the table version has not moved on, and is then dropped. At most {@code maxEntries}
+ * finished bodies are kept; beyond that, results are handed out without being kept. Shared by all
+ * HttpServer instances.
+ */
+public class ListResponseCache
+{
+    private static final String METRIC_MISS = "list.cache.miss";
+
+    private static final String METRIC_COALESCED = "list.cache.coalesced";
+
+    private static final String METRIC_HIT = "list.cache.hit";
+
+    private final Vertx vertx;
+
+    private final long microCacheMs;
+
+    private final int maxEntries;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public ListResponseCache(Vertx vertx, JsonObject config)
+    {
+        this.vertx = vertx;
+
+        this.microCacheMs = config.getLong(Constants.LIST_CACHE_MICRO_CACHE_MS, Constants.DEFAULT_LIST_CACHE_MICRO_CACHE_MS);
+
+        this.maxEntries = config.getInteger(Constants.LIST_CACHE_MAX_ENTRIES, Constants.DEFAULT_LIST_CACHE_MAX_ENTRIES);
+    }
+
+    /**
+     * Returns the encoded body for a list query, running the query only if no usable result exists.
+     *
+     * @param key     Identifies the query, e.g. the table name and its parameters.
+     * @param version The table version the caller read before calling.
+     * @param loader  Runs the query and encodes the response body.
+     * @return Future with the encoded body.
+     */
+    public Future<Buffer> get(String key, long version, Supplier<Future<Buffer>> loader)
+    {
+        var now = System.currentTimeMillis();
+
+        var existing = entries.get(key);
+
+        if (existing != null && existing.version == version)
+        {
+            if (!existing.body.isComplete())
+            {
+                Metrics.increment(METRIC_COALESCED);
+
+                return onCallerContext(existing.body);
+            }
+
+            if (existing.body.succeeded() && now - existing.completedAt < microCacheMs)
+            {
+                Metrics.increment(METRIC_HIT);
+
+                return existing.body;
+            }
+        }
+
+        var promise = Promise.<Buffer>promise();
+
+        var entry = new Entry(version, promise.future());
+
+        // Another request may have started the same query between the lookup and here; join it instead
+        var winner = entries.compute(key, (k, current) ->
+                current != null && current != existing && current.version == version ? current : entry);
+
+        if (winner != entry)
+        {
+            Metrics.increment(METRIC_COALESCED);
+
+            return onCallerContext(winner.body);
+        }
+
+        Metrics.increment(METRIC_MISS);
+
+        loader.get().onComplete(result -> {
+
+            entry.completedAt = System.currentTimeMillis();
+
+            // Failures and results that are not cached must not be handed to later requests; filter values are
+            // free-form, so the number of keys is unbounded and kept bodies are capped and expire
+            if (result.failed() || microCacheMs <= 0 || entries.size() > maxEntries)
+            {
+                entries.remove(key, entry);
+            }
+            else
+            {
+                vertx.setTimer(microCacheMs, id -> entries.remove(key, entry));
+            }
+
+            promise.handle(result);
+        });
+
+        return promise.future();
+    }
+
+    /**
+     * Delivers an in-flight result on the caller's event loop rather than on the one that ran the query.
+     */
+    private static Future<Buffer> onCallerContext(Future<Buffer> body)
+    {
+        var context = Vertx.currentContext();
+
+        if (context == null || body.isComplete())
+        {
+            return body;
+        }
+
+        var promise = Promise.<Buffer>promise();
+
+        body.onComplete(result -> context.runOnContext(v -> promise.handle(result)));
+
+        return promise.future();
+    }
+
+    private static final class Entry
+    {
+        private final long version;
+
+        private final Future<Buffer> body;
+
+        private volatile long completedAt;
+
+        private Entry(long version, Future<Buffer> body)
+        {
+            this.version = version;
+
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.utils;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+
+/**
+ * Event bus codec for immutable payload classes that only travel inside this JVM.
+ * <p>
+ * Local delivery hands the sender's instance to the consumer as is, where Vert.x would otherwise copy
+ * a {@code JsonObject} for every message. The payload classes must therefore be immutable. Wire encoding
+ * is not supported since the application does not run clustered.
+ *
+ * @param <T> The payload type
+ */
+public final class LocalCodec<T> implements MessageCodec<T, T>
+{
+    private final String name;
+
+    public LocalCodec(Class<T> type)
+    {
+        this.name = "local-" + type.getName();
+    }
+
+    @Override
+    public void encodeToWire(Buffer buffer, T payload)
+    {
+        throw new UnsupportedOperationException(name + " only supports local delivery");
+    }
+
+    @Override
+    public T decodeFromWire(int pos, Buffer buffer)
+    {
+        throw new UnsupportedOperationException(name + " only supports local delivery");
+    }
+
+    @Override
+    public T transform(T payload)
+    {
+        return payload;
+    }
+
+    @Override
+    public String name()
+    {
+        return name;
+    }
+
+    @Override
+    public byte systemCodecID()
+    {
+        return -1;
+    }
+}
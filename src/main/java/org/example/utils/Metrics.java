@@ -0,0 +1,134 @@
+package org.example.utils;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process registry of counters, gauges and value summaries shared by all verticles
+ */
+public final class Metrics
+{
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    private static final Map<String, AtomicLong> gauges = new ConcurrentHashMap<>();
+
+    private static final Map<String, Summary> summaries = new ConcurrentHashMap<>();
+
+    private Metrics()
+    {
+    }
+
+    /**
+     * Increments the named counter by one.
+     *
+     * @param name The counter name.
+     */
+    public static void increment(String name)
+    {
+        add(name, 1);
+    }
+
+    /**
+     * Increments the named counter by the given amount.
+     *
+     * @param name  The counter name.
+     * @param delta The amount to add.
+     */
+    public static void add(String name, long delta)
+    {
+        counters.computeIfAbsent(name, key -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * Sets the named gauge to the given value.
+     *
+     * @param name  The gauge name.
+     * @param value The current value.
+     */
+    public static void gauge(String name, long value)
+    {
+        gauges.computeIfAbsent(name, key -> new AtomicLong()).set(value);
+    }
+
+    /**
+     * Removes the named gauge, e.g. when the entity it describes no longer exists.
+     *
+     * @param name The gauge name.
+     */
+    public static void removeGauge(String name)
+    {
+        gauges.remove(name);
+    }
+
+    /**
+     * Records one observation into the named summary (count, total, max).
+     *
+     * @param name  The summary name.
+     * @param value The observed value.
+     */
+    public static void record(String name, long value)
+    {
+        summaries.computeIfAbsent(name, key -> new Summary()).record(value);
+    }
+
+    /**
+     * Returns a point-in-time view of every registered metric.
+     *
+     * @return JsonObject with counters, gauges and summaries sorted by name.
+     */
+    public static JsonObject snapshot()
+    {
+        var counterValues = new TreeMap<String, Object>();
+
+        counters.forEach((name, counter) -> counterValues.put(name, counter.sum()));
+
+        var gaugeValues = new TreeMap<String, Object>();
+
+        gauges.forEach((name, gauge) -> gaugeValues.put(name, gauge.get()));
+
+        var summaryValues = new TreeMap<String, Object>();
+
+        summaries.forEach((name, summary) -> summaryValues.put(name, summary.toJson()));
+
+        return new JsonObject()
+                .put("counters", new JsonObject(counterValues))
+                .put("gauges", new JsonObject(gaugeValues))
+                .put("summaries", new JsonObject(summaryValues));
+    }
+
+    private static final class Summary
+    {
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder total = new LongAdder();
+
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+        private void record(long value)
+        {
+            count.increment();
+
+            total.add(value);
+
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        private JsonObject toJson()
+        {
+            var observations = count.sum();
+
+            var sum = total.sum();
+
+            return new JsonObject()
+                    .put("count", observations)
+                    .put("total", sum)
+                    .put("mean", observations == 0 ? 0 : sum / observations)
+                    .put("max", observations == 0 ? 0 : max.get());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.utils;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.example.constants.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches availability results per ip:port for a short TTL and collapses concurrent probes of the
+ * same target into one in-flight future. Cache misses go through the shared {@link CircuitBreakerRegistry}
+ * before {@link ProcessBuilderUtil#checkAvailability} is called.
+ */
+public class ReachabilityCache
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReachabilityCache.class);
+
+    private static final String METRIC_HIT = "reachability.cache.hit";
+
+    private static final String METRIC_MISS = "reachability.cache.miss";
+
+    private static final String METRIC_COALESCED = "reachability.cache.coalesced";
+
+    private static final String METRIC_SIZE = "reachability.cache.size";
+
+    private final CircuitBreakerRegistry circuitBreakers;
+
+    private final long ttlMs;
+
+    private final int maxEntries;
+
+    private final Map<String, Entry> results = new ConcurrentHashMap<>();
+
+    private final Map<String, Future<Boolean>> inFlight = new ConcurrentHashMap<>();
+
+    public ReachabilityCache(JsonObject config, CircuitBreakerRegistry circuitBreakers)
+    {
+        this.circuitBreakers = circuitBreakers;
+
+        this.ttlMs = config.getLong(Constants.REACHABILITY_TTL_MS, Constants.DEFAULT_REACHABILITY_TTL_MS);
+
+        this.maxEntries = config.getInteger(Constants.REACHABILITY_MAX_ENTRIES, Constants.DEFAULT_REACHABILITY_MAX_ENTRIES);
+    }
+
+    /**
+     * Checks whether the target is reachable, using a cached or in-flight result when there is one.
+     *
+     * @param vertx Vertx instance to execute the blocking probe
+     * @param ip    The target IP address
+     * @param port  The target port
+     * @return Future that completes with the availability result
+     */
+    public Future<Boolean> check(Vertx vertx, String ip, int port)
+    {
+        var key = CircuitBreakerRegistry.key(ip, port);
+
+        var now = System.currentTimeMillis();
+
+        var cached = results.get(key);
+
+        if (cached != null && cached.expiresAt > now)
+        {
+            Metrics.increment(METRIC_HIT);
+
+            return Future.succeededFuture(cached.available);
+        }
+
+        var promise = Promise.<Boolean>promise();
+
+        var existing = inFlight.putIfAbsent(key, promise.future());
+
+        if (existing != null)
+        {
+            Metrics.increment(METRIC_COALESCED);
+
+            return existing;
+        }
+
+        Metrics.increment(METRIC_MISS);
+
+        var profile = new JsonObject()
+                .put(Constants.IP, ip)
+                .put(Constants.PORT, port);
+
+        circuitBreakers.execute(key, () -> ProcessBuilderUtil.checkAvailability(vertx, profile))
+                .onComplete(result -> {
+
+                    if (result.succeeded())
+                    {
+                        results.put(key, new Entry(result.result(), System.currentTimeMillis() + ttlMs));
+
+                        evictIfFull();
+
+                        Metrics.gauge(METRIC_SIZE, results.size());
+                    }
+                    else
+                    {
+                        LOGGER.warn("Availability probe failed for {}: {}", key, result.cause().getMessage());
+                    }
+
+                    // Remove only after the result is cached so no caller slips in between and probes again
+                    inFlight.remove(key);
+
+                    promise.handle(result);
+                });
+
+        return promise.future();
+    }
+
+    /**
+     * Drops expired entries once the cache grows beyond its limit, and the whole cache if that is not enough.
+     */
+    private void evictIfFull()
+    {
+        if (results.size() <= maxEntries)
+        {
+            return;
+        }
+
+        var now = System.currentTimeMillis();
+
+        results.values().removeIf(entry -> entry.expiresAt <= now);
+
+        if (results.size() > maxEntries)
+        {
+            results.clear();
+        }
+    }
+
+    private record Entry(boolean available, long expiresAt)
+    {
+    }
+}
@@ -35,6 +35,22 @@ CREATE TABLE IF NOT EXISTS provisions (
     updated_at TIMESTAMPTZ DEFAULT CURRENT_TIMESTAMP
 );
 
+ALTER TABLE provisions ADD COLUMN IF NOT EXISTS poll_interval_ms INTEGER;
+
+ALTER TABLE discoveries ADD COLUMN IF NOT EXISTS ip_range TEXT;
+
+ALTER TABLE discoveries ADD COLUMN IF NOT EXISTS ports JSONB;
+
+ALTER TABLE discoveries ALTER COLUMN ip DROP NOT NULL;
+
+ALTER TABLE discoveries ADD COLUMN IF NOT EXISTS last_good_credential_id INT;
+
+ALTER TABLE provisions ADD COLUMN IF NOT EXISTS last_good_credential_id INT;
+
+DO $$ BEGIN IF EXISTS (SELECT 1 FROM provisions GROUP BY ip HAVING COUNT(*) > 1) THEN RAISE EXCEPTION 'provisions has several rows for IPs %; delete the extra provisions and their polling rows before starting, as a unique index on provisions (ip) is required', (SELECT string_agg(ip, ', ') FROM (SELECT ip FROM provisions GROUP BY ip HAVING COUNT(*) > 1) duplicates); END IF; END $$;
+
+CREATE UNIQUE INDEX IF NOT EXISTS provisions_ip_key ON provisions (ip);
+
 CREATE TABLE IF NOT EXISTS polling (
     polling_id   SERIAL PRIMARY KEY,
     provisionId INT NOT NULL,
@@ -42,3 +58,74 @@ CREATE TABLE IF NOT EXISTS polling (
     timestamp    TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+CREATE TABLE IF NOT EXISTS polling_schedule (
+    provision_id INT PRIMARY KEY,
+    next_due_at  BIGINT NOT NULL,
+    failures     INT NOT NULL DEFAULT 0,
+    stable_count INT NOT NULL DEFAULT 0,
+    updated_at   TIMESTAMPTZ DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS discovery_jobs (
+    id           BIGSERIAL PRIMARY KEY,
+    discovery_id INT NOT NULL REFERENCES discoveries(id) ON DELETE CASCADE,
+    status       VARCHAR(20) NOT NULL DEFAULT 'queued',
+    result       JSONB,
+    error        TEXT,
+    created_at   TIMESTAMPTZ DEFAULT CURRENT_TIMESTAMP,
+    started_at   TIMESTAMPTZ,
+    finished_at  TIMESTAMPTZ
+);
+
+CREATE INDEX IF NOT EXISTS discovery_jobs_queued_idx ON discovery_jobs (id) WHERE status = 'queued';
+
+CREATE INDEX IF NOT EXISTS discovery_jobs_finished_idx ON discovery_jobs (finished_at) WHERE finished_at IS NOT NULL;
+
+DO $$ BEGIN IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'discovery_jobs_discovery_id_fkey') THEN DELETE FROM discovery_jobs j WHERE NOT EXISTS (SELECT 1 FROM discoveries d WHERE d.id = j.discovery_id); ALTER TABLE discovery_jobs ADD CONSTRAINT discovery_jobs_discovery_id_fkey FOREIGN KEY (discovery_id) REFERENCES discoveries(id) ON DELETE CASCADE; END IF; END $$;
+
+CREATE TABLE IF NOT EXISTS discovery_results (
+    discovery_id  INT NOT NULL,
+    ip            VARCHAR(45) NOT NULL,
+    port          INTEGER NOT NULL,
+    status        VARCHAR(10) NOT NULL,
+    discovered_at TIMESTAMPTZ DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (discovery_id, ip, port)
+);
+CREATE TABLE IF NOT EXISTS change_log (
+    id         BIGSERIAL PRIMARY KEY,
+    txid       BIGINT NOT NULL DEFAULT txid_current(),
+    table_name VARCHAR(50) NOT NULL,
+    row_id     INT NOT NULL,
+    operation  VARCHAR(10) NOT NULL,
+    changed_at TIMESTAMPTZ DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS change_log_cursor_idx ON change_log (txid, id);
+
+CREATE OR REPLACE FUNCTION record_change() RETURNS trigger AS $$ BEGIN IF TG_OP = 'DELETE' THEN INSERT INTO change_log (table_name, row_id, operation) VALUES (TG_TABLE_NAME, OLD.id, 'delete'); ELSE INSERT INTO change_log (table_name, row_id, operation) VALUES (TG_TABLE_NAME, NEW.id, lower(TG_OP)); END IF; RETURN NULL; END $$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS credentials_change_log ON credentials;
+
+CREATE TRIGGER credentials_change_log AFTER INSERT OR UPDATE OR DELETE ON credentials FOR EACH ROW EXECUTE FUNCTION record_change();
+
+DROP TRIGGER IF EXISTS discoveries_change_log ON discoveries;
+
+CREATE TRIGGER discoveries_change_log AFTER INSERT OR UPDATE OR DELETE ON discoveries FOR EACH ROW EXECUTE FUNCTION record_change();
+
+DROP TRIGGER IF EXISTS provisions_change_log ON provisions;
+
+CREATE TRIGGER provisions_change_log AFTER INSERT OR UPDATE OR DELETE ON provisions FOR EACH ROW EXECUTE FUNCTION record_change();
+
+CREATE OR REPLACE FUNCTION touch_updated_at() RETURNS trigger AS $$ BEGIN NEW.updated_at = CURRENT_TIMESTAMP; RETURN NEW; END $$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS credentials_updated_at ON credentials;
+
+CREATE TRIGGER credentials_updated_at BEFORE UPDATE ON credentials FOR EACH ROW EXECUTE FUNCTION touch_updated_at();
+
+DROP TRIGGER IF EXISTS discoveries_updated_at ON discoveries;
+
+CREATE TRIGGER discoveries_updated_at BEFORE UPDATE ON discoveries FOR EACH ROW EXECUTE FUNCTION touch_updated_at();
+
+DROP TRIGGER IF EXISTS provisions_updated_at ON provisions;
+
+CREATE TRIGGER provisions_updated_at BEFORE UPDATE ON provisions FOR EACH ROW EXECUTE FUNCTION touch_updated_at();